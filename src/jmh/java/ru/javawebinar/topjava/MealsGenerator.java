@@ -0,0 +1,78 @@
+package ru.javawebinar.topjava;
+
+import ru.javawebinar.topjava.model.Meal;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic meal histories for benchmarks.
+ * Meals are returned ORDERED dateTime desc, as repositories do.
+ */
+public class MealsGenerator {
+
+    public enum Distribution {
+        // breakfast, lunch and dinner every day
+        FIXED,
+        // 1..6 meals a day at random times
+        RANDOM,
+        // one meal every few days
+        SPARSE,
+        // 20 snacks a day, most of the days exceed
+        HEAVY
+    }
+
+    private static final String[] DESCRIPTIONS = {"Завтрак", "Обед", "Ужин", "Перекус"};
+    private static final LocalTime[] FIXED_TIMES = {LocalTime.of(8, 0), LocalTime.of(13, 0), LocalTime.of(19, 30)};
+    private static final LocalDate START_DATE = LocalDate.of(2000, 1, 1);
+
+    private MealsGenerator() {
+    }
+
+    public static List<Meal> generate(int size, Distribution distribution) {
+        return generate(size, distribution, 0);
+    }
+
+    public static List<Meal> generate(int size, Distribution distribution, int startId) {
+        Random random = new Random(size);
+        List<Meal> meals = new ArrayList<>(size);
+        LocalDate date = START_DATE;
+        while (meals.size() < size) {
+            for (LocalTime time : timesOfDay(distribution, random)) {
+                if (meals.size() == size) {
+                    break;
+                }
+                Integer id = startId == 0 ? null : startId + meals.size();
+                meals.add(new Meal(id, LocalDateTime.of(date, time),
+                        DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)], 100 + random.nextInt(900)));
+            }
+            date = date.plusDays(distribution == Distribution.SPARSE ? 1 + random.nextInt(5) : 1);
+        }
+        Collections.reverse(meals);
+        return meals;
+    }
+
+    private static List<LocalTime> timesOfDay(Distribution distribution, Random random) {
+        return switch (distribution) {
+            case FIXED -> List.of(FIXED_TIMES);
+            case SPARSE -> randomTimes(random, 1);
+            case RANDOM -> randomTimes(random, 1 + random.nextInt(6));
+            case HEAVY -> randomTimes(random, 20);
+        };
+    }
+
+    // one time per equal slot of the day: distinct and ascending, as (user_id, date_time) is unique
+    private static List<LocalTime> randomTimes(Random random, int count) {
+        int slotMinutes = 24 * 60 / count;
+        List<LocalTime> times = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            times.add(LocalTime.ofSecondOfDay((i * slotMinutes + random.nextInt(slotMinutes)) * 60L));
+        }
+        return times;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.javawebinar.topjava.repository.jdbc;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.javawebinar.topjava.model.Meal;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JdbcMealRepository#ROW_MAPPER} by column index vs previous {@link BeanPropertyRowMapper}
+ * on 1M rows of in-memory HSQLDB <code>meal</code> table. Score is rows/second.
+ * <p>
+ * Run: <code>mvn -Phsqldb,jmh test-compile exec:exec -Djmh.args="RowMapperBenchmark -prof gc"</code>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class RowMapperBenchmark {
+    private static final int ROWS = 1_000_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int USER_ID = 100_000;
+
+    private static final RowMapper<Meal> BEAN_ROW_MAPPER = BeanPropertyRowMapper.newInstance(Meal.class);
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:rowmapper", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/initDB_hsql.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, 'User', 'user@yandex.ru', 'password')", USER_ID);
+
+        LocalDateTime dateTime = LocalDateTime.of(2000, 1, 1, 8, 0);
+        for (int batch = 0; batch < ROWS / BATCH_SIZE; batch++) {
+            List<Object[]> args = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                args.add(new Object[]{dateTime, "Meal " + i, 100 + i % 900, USER_ID});
+                dateTime = dateTime.plusHours(1);
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO meal (date_time, description, calories, user_id) VALUES (?, ?, ?, ?)", args);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void beanPropertyRowMapper(Blackhole blackhole) {
+        jdbcTemplate.query("SELECT * FROM meal", rs -> {
+            blackhole.consume(BEAN_ROW_MAPPER.mapRow(rs, 0));
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void indexRowMapper(Blackhole blackhole) {
+        jdbcTemplate.query("SELECT " + JdbcMealRepository.COLUMNS + " FROM meal", rs -> {
+            blackhole.consume(JdbcMealRepository.ROW_MAPPER.mapRow(rs, 0));
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package ru.javawebinar.topjava.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.javawebinar.topjava.Profiles;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.BatchResultTo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meal ingestion: one {@link MealService#create} per meal vs {@link MealService#createAll} batch,
+ * on in-memory HSQLDB for every repository implementation. Meals/second = score * batchSize.
+ * <p>
+ * JPA/DataJPA insert rate depends on id allocation: compare with <code>allocationSize = 1</code> of global_seq
+ * by running on the commit before pooled-lo sequences (one <code>nextval</code> per meal instead of per 50 meals).
+ * <p>
+ * Run: <code>mvn -Phsqldb,jmh test-compile exec:exec -Djmh.args="MealBatchBenchmark"</code>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Ddatabase.url=jdbc:hsqldb:mem:batch", "-Djpa.showSql=false"})
+@State(Scope.Benchmark)
+public class MealBatchBenchmark {
+    private static final int USER_ID = 100_000;
+
+    @Param({"100", "1000", "10000"})
+    private int batchSize;
+
+    @Param({Profiles.JDBC, Profiles.JPA, Profiles.DATAJPA})
+    private String implementation;
+
+    private GenericXmlApplicationContext context;
+    private MealService service;
+    private JdbcTemplate jdbcTemplate;
+    private LocalDateTime dateTime;
+
+    @Setup
+    public void setup() {
+        context = new GenericXmlApplicationContext();
+        context.getEnvironment().setActiveProfiles(Profiles.HSQL_DB, implementation);
+        context.load("spring/spring-app.xml", "spring/spring-db.xml");
+        context.refresh();
+        service = context.getBean(MealService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    // meals of the previous iteration are deleted, so every iteration inserts into the same table size
+    @Setup(Level.Iteration)
+    public void clearMeals() {
+        jdbcTemplate.update("DELETE FROM meal WHERE user_id=?", USER_ID);
+        jdbcTemplate.update("DELETE FROM meal_daily_total WHERE user_id=?", USER_ID);
+        dateTime = LocalDateTime.of(2000, 1, 1, 0, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Meal> createOneByOne() {
+        List<Meal> meals = newMeals();
+        meals.forEach(meal -> service.create(meal, USER_ID));
+        return meals;
+    }
+
+    @Benchmark
+    public BatchResultTo<Meal> createAll() {
+        return service.createAll(newMeals(), USER_ID);
+    }
+
+    private List<Meal> newMeals() {
+        List<Meal> meals = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            meals.add(new Meal(null, dateTime, "Meal " + i, 10 + i % 1000));
+            dateTime = dateTime.plusMinutes(30);
+        }
+        return meals;
+    }
+}
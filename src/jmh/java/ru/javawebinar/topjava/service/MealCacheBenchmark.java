@@ -0,0 +1,115 @@
+package ru.javawebinar.topjava.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.PropertyOverrideConfigurer;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.javawebinar.topjava.Profiles;
+import ru.javawebinar.topjava.model.Meal;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-heavy mix of /rest/profile/meals (50 reads per write) with and without Hibernate 2-d level and query cache,
+ * on in-memory HSQLDB. DB hit rate is printed after every iteration: JDBC statements per operation and query cache hit ratio.
+ * <p>
+ * Reads go to {@link MealService#getAll} and {@link MealService#getBetweenInclusive}, which are not covered by {@link MealToCache}.
+ * <p>
+ * Run: <code>mvn -Phsqldb,jmh test-compile exec:exec -Djmh.args="MealCacheBenchmark"</code>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Ddatabase.url=jdbc:hsqldb:mem:cache", "-Djpa.showSql=false"})
+@State(Scope.Benchmark)
+public class MealCacheBenchmark {
+    private static final int USER_ID = 100_000;
+    private static final int MEALS = 1000;
+    private static final int READS_PER_WRITE = 50;
+
+    @Param({"true", "false"})
+    private boolean cache;
+
+    @Param({Profiles.JPA, Profiles.DATAJPA})
+    private String implementation;
+
+    private GenericXmlApplicationContext context;
+    private MealService service;
+    private Statistics statistics;
+    private List<Meal> meals;
+    private long operations;
+
+    @Setup
+    public void setup() {
+        context = new GenericXmlApplicationContext();
+        context.getEnvironment().setActiveProfiles(Profiles.HSQL_DB, implementation);
+        context.load("spring/spring-app.xml", "spring/spring-db.xml");
+        Properties properties = new Properties();
+        properties.setProperty("entityManagerFactory.jpaPropertyMap[hibernate.cache.use_second_level_cache]", String.valueOf(cache));
+        properties.setProperty("entityManagerFactory.jpaPropertyMap[hibernate.cache.use_query_cache]", String.valueOf(cache));
+        PropertyOverrideConfigurer override = new PropertyOverrideConfigurer();
+        override.setProperties(properties);
+        context.addBeanFactoryPostProcessor(override);
+        context.refresh();
+
+        service = context.getBean(MealService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM meal WHERE user_id=?", USER_ID);
+        jdbcTemplate.update("DELETE FROM meal_daily_total WHERE user_id=?", USER_ID);
+        List<Meal> newMeals = new ArrayList<>(MEALS);
+        LocalDateTime dateTime = LocalDateTime.of(2000, 1, 1, 0, 0);
+        for (int i = 0; i < MEALS; i++) {
+            newMeals.add(new Meal(null, dateTime, "Meal " + i, 10 + i % 1000));
+            dateTime = dateTime.plusHours(5);
+        }
+        meals = service.createAll(newMeals, USER_ID).getCreated();
+
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearStatistics() {
+        statistics.clear();
+        operations = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void printStatistics() {
+        long hits = statistics.getQueryCacheHitCount();
+        long misses = statistics.getQueryCacheMissCount();
+        System.out.printf("%n%s cache=%s: %.3f statements/op, query cache hit ratio %.3f%n", implementation, cache,
+                (double) statistics.getPrepareStatementCount() / Math.max(1, operations),
+                (double) hits / Math.max(1, hits + misses));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object readHeavy() {
+        long op = operations++;
+        if (op % (READS_PER_WRITE + 1) == READS_PER_WRITE) {
+            Meal meal = meals.get((int) (op % MEALS));
+            Meal updated = new Meal(meal.getId(), meal.getDateTime(), meal.getDescription(), 10 + (int) (op % 1000));
+            service.update(updated, USER_ID);
+            return updated;
+        }
+        if (op % 2 == 0) {
+            return service.getAll(USER_ID);
+        }
+        LocalDate date = meals.get((int) (op % MEALS)).getDate();
+        return service.getBetweenInclusive(date.minusDays(7), date, USER_ID);
+    }
+}
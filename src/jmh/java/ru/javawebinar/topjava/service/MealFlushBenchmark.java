@@ -0,0 +1,98 @@
+package ru.javawebinar.topjava.service;
+
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.javawebinar.topjava.Profiles;
+import ru.javawebinar.topjava.model.Meal;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flush of persistence context with <code>loaded</code> managed meals, <code>changed</code> of them are modified before every flush.
+ * Without bytecode enhancement flush compares every loaded meal with its snapshot,
+ * with enhanced dirty tracking it only asks each meal for its dirty attributes, so the cost follows the changed meals.
+ * <p>
+ * Enhanced (default build) vs baseline:
+ * <code>mvn -Phsqldb,jmh test-compile exec:exec -Djmh.args="MealFlushBenchmark"</code> and
+ * <code>mvn clean -Phsqldb,jmh -Dhibernate.enhance.skip test-compile exec:exec -Djmh.args="MealFlushBenchmark"</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Ddatabase.url=jdbc:hsqldb:mem:flush", "-Djpa.showSql=false"})
+@State(Scope.Benchmark)
+public class MealFlushBenchmark {
+    private static final int USER_ID = 100_000;
+
+    @Param({"1000", "10000", "100000"})
+    private int loaded;
+
+    @Param({"0", "10"})
+    private int changed;
+
+    private GenericXmlApplicationContext context;
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager em;
+    private List<Meal> meals;
+    private int calories;
+
+    @Setup
+    public void setup() {
+        context = new GenericXmlApplicationContext();
+        context.getEnvironment().setActiveProfiles(Profiles.HSQL_DB, Profiles.JPA);
+        context.load("spring/spring-app.xml", "spring/spring-db.xml");
+        context.refresh();
+        System.out.println("\nMeal is enhanced: " + SelfDirtinessTracker.class.isAssignableFrom(Meal.class));
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM meal WHERE user_id=?", USER_ID);
+        jdbcTemplate.update("DELETE FROM meal_daily_total WHERE user_id=?", USER_ID);
+        List<Meal> newMeals = new ArrayList<>(loaded);
+        LocalDateTime dateTime = LocalDateTime.of(2000, 1, 1, 0, 0);
+        for (int i = 0; i < loaded; i++) {
+            newMeals.add(new Meal(null, dateTime, "Meal " + i, 10 + i % 1000));
+            dateTime = dateTime.plusHours(5);
+        }
+        context.getBean(MealService.class).createAll(newMeals, USER_ID);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+    }
+
+    // meals stay managed for the whole iteration, changes are rolled back at its end
+    @Setup(Level.Iteration)
+    public void load() {
+        em = entityManagerFactory.createEntityManager();
+        em.getTransaction().begin();
+        meals = em.createNamedQuery(Meal.ALL_SORTED, Meal.class)
+                .setParameter("userId", USER_ID)
+                .getResultList();
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollback() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int flush() {
+        calories = calories == 100 ? 200 : 100;
+        for (int i = 0; i < changed; i++) {
+            meals.get(i).setCalories(calories);
+        }
+        em.flush();
+        return calories;
+    }
+}
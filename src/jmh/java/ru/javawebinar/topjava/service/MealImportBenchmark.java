@@ -0,0 +1,81 @@
+package ru.javawebinar.topjava.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.javawebinar.topjava.Profiles;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.ImportResultTo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MealService#importMeals} of a million generated meals and {@link MealService#purge} of them, on in-memory HSQLDB.
+ * Meals are generated while they are read, so the fork heap is small: import and purge must not keep meals
+ * (JPA/DataJPA write them by stateless session). Heap: <code>-Djmh.args="MealImportBenchmark -prof gc"</code>
+ * <p>
+ * Run: <code>mvn -Phsqldb,jmh test-compile exec:exec -Djmh.args="MealImportBenchmark"</code>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms256m", "-Xmx256m", "-Ddatabase.url=jdbc:hsqldb:mem:import", "-Djpa.showSql=false"})
+@State(Scope.Benchmark)
+public class MealImportBenchmark {
+    private static final int USER_ID = 100_000;
+    private static final LocalDateTime START = LocalDateTime.of(1900, 1, 1, 0, 0);
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({Profiles.JDBC, Profiles.JPA, Profiles.DATAJPA})
+    private String implementation;
+
+    private GenericXmlApplicationContext context;
+    private MealService service;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setup() {
+        context = new GenericXmlApplicationContext();
+        context.getEnvironment().setActiveProfiles(Profiles.HSQL_DB, implementation);
+        context.load("spring/spring-app.xml", "spring/spring-db.xml");
+        context.refresh();
+        service = context.getBean(MealService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearMeals() {
+        jdbcTemplate.update("DELETE FROM meal WHERE user_id=?", USER_ID);
+        jdbcTemplate.update("DELETE FROM meal_daily_total WHERE user_id=?", USER_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // generated meals end before 2000, purge keeps the populated meals
+    @Benchmark
+    public int importAndPurge() {
+        ImportResultTo result = service.importMeals(new Iterator<>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < rows;
+            }
+
+            @Override
+            public Meal next() {
+                return new Meal(null, START.plusMinutes(row * 5L), "Meal " + row, 10 + row++ % 1000);
+            }
+        }, USER_ID);
+        return result.getInserted() + service.purge(LocalDate.of(2000, 1, 1));
+    }
+}
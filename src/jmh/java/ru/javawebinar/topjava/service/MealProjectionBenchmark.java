@@ -0,0 +1,85 @@
+package ru.javawebinar.topjava.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.PropertyOverrideConfigurer;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.javawebinar.topjava.Profiles;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.repository.MealRepository;
+import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.util.MealsUtil;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MealService#getAllTos} miss of 100k-meal user: managed entities of {@link MealRepository#getAll}
+ * vs constructor projection of {@link MealRepository#getAllForTos}, both converted by {@link MealsUtil#getTos}.
+ * 2-d level and query cache are off, so every call reads DB.
+ * <p>
+ * Run with allocated heap per call: <code>mvn -Phsqldb,jmh test-compile exec:exec -Djmh.args="MealProjectionBenchmark -prof gc"</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Ddatabase.url=jdbc:hsqldb:mem:projection", "-Djpa.showSql=false"})
+@State(Scope.Benchmark)
+public class MealProjectionBenchmark {
+    private static final int USER_ID = 100_000;
+    private static final int CALORIES_PER_DAY = 2000;
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({Profiles.JPA, Profiles.DATAJPA})
+    private String implementation;
+
+    private GenericXmlApplicationContext context;
+    private MealRepository repository;
+
+    @Setup
+    public void setup() {
+        context = new GenericXmlApplicationContext();
+        context.getEnvironment().setActiveProfiles(Profiles.HSQL_DB, implementation);
+        context.load("spring/spring-app.xml", "spring/spring-db.xml");
+        Properties properties = new Properties();
+        properties.setProperty("entityManagerFactory.jpaPropertyMap[hibernate.cache.use_second_level_cache]", "false");
+        properties.setProperty("entityManagerFactory.jpaPropertyMap[hibernate.cache.use_query_cache]", "false");
+        PropertyOverrideConfigurer override = new PropertyOverrideConfigurer();
+        override.setProperties(properties);
+        context.addBeanFactoryPostProcessor(override);
+        context.refresh();
+
+        repository = context.getBean(MealRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM meal WHERE user_id=?", USER_ID);
+        jdbcTemplate.update("DELETE FROM meal_daily_total WHERE user_id=?", USER_ID);
+        List<Meal> meals = new ArrayList<>(size);
+        LocalDateTime dateTime = LocalDateTime.of(2000, 1, 1, 0, 0);
+        for (int i = 0; i < size; i++) {
+            meals.add(new Meal(null, dateTime, "Meal " + i, 10 + i % 1000));
+            dateTime = dateTime.plusHours(5);
+        }
+        context.getBean(MealService.class).createAll(meals, USER_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MealTo> entities() {
+        return MealsUtil.getTos(repository.getAll(USER_ID), CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> projection() {
+        return MealsUtil.getTos(repository.getAllForTos(USER_ID), CALORIES_PER_DAY);
+    }
+}
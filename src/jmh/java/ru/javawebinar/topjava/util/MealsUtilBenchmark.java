@@ -0,0 +1,82 @@
+package ru.javawebinar.topjava.util;
+
+import org.openjdk.jmh.annotations.*;
+import ru.javawebinar.topjava.MealsGenerator;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.MealTo;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Excess calculation strategies of {@link MealsUtil} with linear stack and thread usage.
+ * <p>
+ * Run with allocation rate: <code>-Djmh.args="MealsUtilBenchmark -prof gc"</code>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class MealsUtilBenchmark {
+    static final int CALORIES_PER_DAY = 2000;
+    static final LocalTime START_TIME = LocalTime.of(7, 0);
+    static final LocalTime END_TIME = LocalTime.of(12, 0);
+
+    @Param({"10", "1000", "100000", "10000000"})
+    private int size;
+
+    @Param({"FIXED", "RANDOM", "SPARSE", "HEAVY"})
+    private MealsGenerator.Distribution distribution;
+
+    private List<Meal> meals;
+
+    @Setup
+    public void setup() {
+        meals = MealsGenerator.generate(size, distribution);
+    }
+
+    @Benchmark
+    public List<MealTo> getTos() {
+        return MealsUtil.getTos(meals, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> getFilteredTos() {
+        return MealsUtil.getFilteredTos(meals, CALORIES_PER_DAY, START_TIME, END_TIME);
+    }
+
+    // getTos before primitive DailyCalories: compare gc.alloc.rate.norm with getTos
+    @Benchmark
+    public List<MealTo> getTosByStreams() {
+        return MealsUtil.filteredByStreams(meals, null, null, CALORIES_PER_DAY);
+    }
+
+    // getFilteredTos before primitive DailyCalories: compare gc.alloc.rate.norm with getFilteredTos
+    @Benchmark
+    public List<MealTo> filteredByStreams() {
+        return MealsUtil.filteredByStreams(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByCycles() {
+        return MealsUtil.filteredByCycles(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredBySetterRecursion() {
+        return MealsUtil.filteredBySetterRecursion(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByFlatMap() {
+        return MealsUtil.filteredByFlatMap(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByCollector() {
+        return MealsUtil.filteredByCollector(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.javawebinar.topjava.util;
+
+import org.openjdk.jmh.annotations.*;
+import ru.javawebinar.topjava.MealsGenerator;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.MealTo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ru.javawebinar.topjava.util.MealsUtilBenchmark.*;
+
+/**
+ * Excess calculation strategies of {@link MealsUtil}, which go as deep into the stack
+ * (recursion, predicate/consumer chains) or start as many tasks/threads as there are meals.
+ * Bigger histories end with StackOverflowError or thousands of threads, so sizes are limited.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MealsUtilLimitedBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    @Param({"FIXED", "RANDOM", "SPARSE", "HEAVY"})
+    private MealsGenerator.Distribution distribution;
+
+    private List<Meal> meals;
+
+    @Setup
+    public void setup() {
+        meals = MealsGenerator.generate(size, distribution);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByRecursion() {
+        return MealsUtil.filteredByRecursion(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByRecursionWithCycleAndRunnable() {
+        return MealsUtil.filteredByRecursionWithCycleAndRunnable(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByPredicate() {
+        return MealsUtil.filteredByPredicate(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByConsumerChain() {
+        return MealsUtil.filteredByConsumerChain(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByExecutor() throws InterruptedException {
+        return MealsUtil.filteredByExecutor(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByLock() throws InterruptedException {
+        return MealsUtil.filteredByLock(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+
+    @Benchmark
+    public List<MealTo> filteredByCountDownLatch() throws InterruptedException {
+        return MealsUtil.filteredByCountDownLatch(meals, START_TIME, END_TIME, CALORIES_PER_DAY);
+    }
+}
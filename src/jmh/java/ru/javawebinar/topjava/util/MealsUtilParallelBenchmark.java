@@ -0,0 +1,59 @@
+package ru.javawebinar.topjava.util;
+
+import org.openjdk.jmh.annotations.*;
+import ru.javawebinar.topjava.MealsGenerator;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.MealTo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ru.javawebinar.topjava.util.MealsUtilBenchmark.*;
+
+/**
+ * Sequential vs fork-join excess calculation of {@link MealsUtil}: the crossover size
+ * is the candidate for <code>-Dtopjava.mealsUtil.parallelThreshold</code>.
+ * <p>
+ * Run: <code>-Djmh.args="MealsUtilParallelBenchmark"</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class MealsUtilParallelBenchmark {
+
+    @Param({"1000", "10000", "30000", "100000", "300000", "1000000"})
+    private int size;
+
+    @Param({"FIXED", "HEAVY"})
+    private MealsGenerator.Distribution distribution;
+
+    private List<Meal> meals;
+
+    @Setup
+    public void setup() {
+        meals = MealsGenerator.generate(size, distribution);
+    }
+
+    @Benchmark
+    public List<MealTo> getTosSequential() {
+        return MealsUtil.filterByTimeSequential(meals, CALORIES_PER_DAY, null, null);
+    }
+
+    @Benchmark
+    public List<MealTo> getTosParallel() {
+        return MealsUtil.filterByTimeParallel(meals, CALORIES_PER_DAY, null, null);
+    }
+
+    @Benchmark
+    public List<MealTo> getFilteredTosSequential() {
+        return MealsUtil.filterByTimeSequential(meals, CALORIES_PER_DAY, START_TIME, END_TIME);
+    }
+
+    @Benchmark
+    public List<MealTo> getFilteredTosParallel() {
+        return MealsUtil.filterByTimeParallel(meals, CALORIES_PER_DAY, START_TIME, END_TIME);
+    }
+}
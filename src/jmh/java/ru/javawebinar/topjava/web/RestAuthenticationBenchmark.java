@@ -0,0 +1,86 @@
+package ru.javawebinar.topjava.web;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.XmlWebApplicationContext;
+import ru.javawebinar.topjava.Profiles;
+import ru.javawebinar.topjava.service.AuthorizedUserCache;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+
+/**
+ * Throughput of authenticated stateless REST requests (GET /rest/profile, http-basic) through the whole Spring Security and MVC stack
+ * on in-memory HSQLDB, with and without {@link AuthorizedUserCache} (<code>maxUsers=0</code> caches nothing).
+ * Authentication cache hit ratio is printed after every iteration.
+ * <p>
+ * Run: <code>mvn -Phsqldb,jmh test-compile exec:exec -Djmh.args="RestAuthenticationBenchmark"</code>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Ddatabase.url=jdbc:hsqldb:mem:auth", "-Djpa.showSql=false"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class RestAuthenticationBenchmark {
+    private static final String[][] CREDENTIALS = {{"user@yandex.ru", "password"}, {"admin@gmail.com", "admin"}};
+
+    // read once by AuthorizedUserCache: every parameter set runs in its own fork
+    @Param({"10000", "0"})
+    private String maxUsers;
+
+    private XmlWebApplicationContext context;
+    private MockMvc mockMvc;
+    private AuthorizedUserCache cache;
+
+    @Setup
+    public void setup() {
+        System.setProperty("topjava.authCache.maxUsers", maxUsers);
+        context = new XmlWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().setActiveProfiles(Profiles.HSQL_DB, Profiles.DATAJPA);
+        context.setConfigLocations("classpath:spring/spring-app.xml", "classpath:spring/spring-mvc.xml", "classpath:spring/spring-db.xml");
+        context.refresh();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+        cache = context.getBean(AuthorizedUserCache.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearStatistics() {
+        cache.resetStatistics();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printStatistics() {
+        System.out.printf("%nmaxUsers=%s: %d authentications, hit ratio %.3f%n", maxUsers,
+                cache.getHits() + cache.getMisses(), cache.getHitRatio());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private int requests;
+    }
+
+    @Benchmark
+    public MvcResult getProfile(Client client) throws Exception {
+        String[] credentials = CREDENTIALS[client.requests++ % CREDENTIALS.length];
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/rest/profile")
+                .with(httpBasic(credentials[0], credentials[1]))).andReturn();
+        if (result.getResponse().getStatus() != 200) {
+            throw new IllegalStateException("status " + result.getResponse().getStatus());
+        }
+        return result;
+    }
+}
@@ -1,6 +1,9 @@
 package ru.javawebinar.topjava.model;
 
 import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import ru.javawebinar.topjava.HasId;
 
 import javax.persistence.*;
@@ -11,11 +14,22 @@ import javax.persistence.*;
 //@JsonAutoDetect(fieldVisibility = ANY, getterVisibility = NONE, isGetterVisibility = NONE, setterVisibility = NONE)
 public abstract class AbstractBaseEntity implements HasId {
     public static final int START_SEQ = 100000;
+    // ids below are reserved for populateDB.sql
+    public static final int SEQ_INITIAL_VALUE = START_SEQ + 100;
+    // must be equal to INCREMENT BY of the sequences in initDB.sql/initDB_hsql.sql
+    public static final int SEQ_ALLOCATION_SIZE = 50;
 
     @Id
-    @SequenceGenerator(name = "global_seq", sequenceName = "global_seq", allocationSize = 1, initialValue = START_SEQ)
+//  Sequence per entity table (user_seq, meal_seq): Hibernate takes a block of SEQ_ALLOCATION_SIZE ids by one nextval
+//  and hands them out in memory (pooled-lo), jdbc repositories do the same by PooledLoIdGenerator
+    @GenericGenerator(name = "entity_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = SequenceStyleGenerator.CONFIG_PREFER_SEQUENCE_PER_ENTITY, value = "true"),
+            @Parameter(name = SequenceStyleGenerator.CONFIG_SEQUENCE_PER_ENTITY_SUFFIX, value = "_seq"),
+            @Parameter(name = SequenceStyleGenerator.INITIAL_PARAM, value = "" + SEQ_INITIAL_VALUE),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + SEQ_ALLOCATION_SIZE),
+            @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")})
     //    @Column(name = "id", unique = true, nullable = false, columnDefinition = "integer default nextval('global_seq')")
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "global_seq")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "entity_seq")
 //  See https://hibernate.atlassian.net/browse/HHH-3718 and https://hibernate.atlassian.net/browse/HHH-12034
 //  Proxy initialization when accessing its identifier managed now by JPA_PROXY_COMPLIANCE setting
     protected Integer id;
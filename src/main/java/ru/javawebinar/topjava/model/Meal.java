@@ -1,8 +1,11 @@
 package ru.javawebinar.topjava.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.jpa.QueryHints;
 import org.hibernate.validator.constraints.Range;
 
 import javax.persistence.*;
@@ -14,21 +17,40 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @NamedQueries({
-        @NamedQuery(name = Meal.ALL_SORTED, query = "SELECT m FROM Meal m WHERE m.user.id=:userId ORDER BY m.dateTime DESC"),
+        @NamedQuery(name = Meal.GET, query = "SELECT m FROM Meal m WHERE m.id=:id AND m.user.id=:userId"),
+        @NamedQuery(name = Meal.ALL_SORTED, query = "SELECT m FROM Meal m WHERE m.user.id=:userId ORDER BY m.dateTime DESC",
+                hints = {@QueryHint(name = QueryHints.HINT_CACHEABLE, value = "true"),
+                        @QueryHint(name = QueryHints.HINT_CACHE_REGION, value = Meal.QUERY_CACHE_REGION)}),
+//  Constructor expression: result meals are not managed (no snapshots for dirty checking) and have no user proxy
+        @NamedQuery(name = Meal.ALL_FOR_TOS, query = """
+                    SELECT new ru.javawebinar.topjava.model.Meal(m.id, m.dateTime, m.description, m.calories) FROM Meal m
+                    WHERE m.user.id=:userId ORDER BY m.dateTime DESC
+                """, hints = {@QueryHint(name = QueryHints.HINT_READONLY, value = "true"),
+                @QueryHint(name = QueryHints.HINT_FETCH_SIZE, value = "1000")}),
         @NamedQuery(name = Meal.DELETE, query = "DELETE FROM Meal m WHERE m.id=:id AND m.user.id=:userId"),
         @NamedQuery(name = Meal.GET_BETWEEN, query = """
                     SELECT m FROM Meal m 
                     WHERE m.user.id=:userId AND m.dateTime >= :startDateTime AND m.dateTime < :endDateTime ORDER BY m.dateTime DESC
+                """, hints = {@QueryHint(name = QueryHints.HINT_CACHEABLE, value = "true"),
+                @QueryHint(name = QueryHints.HINT_CACHE_REGION, value = Meal.QUERY_CACHE_REGION)}),
+        @NamedQuery(name = Meal.UPDATE, query = """
+                    UPDATE Meal m SET m.dateTime=:dateTime, m.description=:description, m.calories=:calories
+                    WHERE m.id=:id AND m.user.id=:userId
                 """),
-//        @NamedQuery(name = Meal.UPDATE, query = "UPDATE Meal m SET m.dateTime = :datetime, m.calories= :calories," +
-//                "m.description=:desc where m.id=:id and m.user.id=:userId")
 })
+//  Query cache keeps ids of the result, entities are taken from the Meal region.
+//  Any Hibernate write of meal (bulk JPQL too) invalidates the cached queries by the meal table update timestamp
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Entity
 @Table(name = "meal", uniqueConstraints = {@UniqueConstraint(columnNames = {"user_id", "date_time"}, name = "meals_unique_user_datetime_idx")})
 public class Meal extends AbstractBaseEntity {
+    public static final String GET = "Meal.get";
     public static final String ALL_SORTED = "Meal.getAll";
+    public static final String ALL_FOR_TOS = "Meal.getAllForTos";
     public static final String DELETE = "Meal.delete";
     public static final String GET_BETWEEN = "Meal.getBetween";
+    public static final String UPDATE = "Meal.update";
+    public static final String QUERY_CACHE_REGION = "meal_queries";
 
     @Column(name = "date_time", nullable = false)
     @NotNull
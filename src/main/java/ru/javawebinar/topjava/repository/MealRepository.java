@@ -1,14 +1,41 @@
 package ru.javawebinar.topjava.repository;
 
+import org.springframework.lang.Nullable;
 import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.util.MealsUtil;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
 
 public interface MealRepository {
     // null if updated meal does not belong to userId
     Meal save(Meal meal, int userId);
 
+    // new meals only, ids are set into meals
+    default List<Meal> saveAll(List<Meal> meals, int userId) {
+        meals.forEach(meal -> save(meal, userId));
+        return meals;
+    }
+
+    // new meals with dateTime absent in DB are saved (ids are set into them), dateTimes of the skipped meals are returned
+    default Set<LocalDateTime> saveAllAbsent(List<Meal> meals, int userId) {
+        Set<LocalDateTime> existing = getExistingDateTimes(meals.stream().map(Meal::getDateTime).collect(Collectors.toSet()), userId);
+        List<Meal> absent = meals.stream()
+                .filter(meal -> !existing.contains(meal.getDateTime()))
+                .toList();
+        if (!absent.isEmpty()) {
+            saveAll(absent, userId);
+        }
+        return existing;
+    }
+
     // false if meal does not belong to userId
     boolean delete(int id, int userId);
 
@@ -18,10 +45,67 @@ public interface MealRepository {
     // ORDERED dateTime desc
     List<Meal> getAll(int userId);
 
+    // ORDERED dateTime desc, read-only meals for MealTo calculation: id, dateTime, description, calories only
+    default List<Meal> getAllForTos(int userId) {
+        return getAll(userId);
+    }
+
     // ORDERED dateTime desc
     List<Meal> getBetweenHalfOpen(LocalDateTime startDateTime, LocalDateTime endDateTime, int userId);
 
+    // dateTimes of the user's meals present among dateTimes
+    default Set<LocalDateTime> getExistingDateTimes(Collection<LocalDateTime> dateTimes, int userId) {
+        Set<LocalDateTime> requested = Set.copyOf(dateTimes);
+        return getAll(userId).stream()
+                .map(Meal::getDateTime)
+                .filter(requested::contains)
+                .collect(Collectors.toSet());
+    }
+
+    // ORDERED dateTime desc, first limit meals of getBetweenHalfOpen
+    default List<Meal> getBetweenHalfOpen(LocalDateTime startDateTime, LocalDateTime endDateTime, int limit, int userId) {
+        return getBetweenHalfOpen(startDateTime, endDateTime, userId).stream()
+                .limit(limit)
+                .toList();
+    }
+
+    // ORDERED dateTime desc, excess by sum of all meals of the day inside [startDateTime, endDateTime)
+    default List<MealTo> getFilteredTos(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                        @Nullable LocalTime startTime, @Nullable LocalTime endTime, int caloriesPerDay, int userId) {
+        return MealsUtil.getFilteredTos(getBetweenHalfOpen(startDateTime, endDateTime, userId), caloriesPerDay, startTime, endTime);
+    }
+
+    // ORDERED dateTime desc, first limit of getFilteredTos before dateTime (exclusive), null before for the first page
+    default List<MealTo> getFilteredTosPage(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                            @Nullable LocalTime startTime, @Nullable LocalTime endTime,
+                                            @Nullable LocalDateTime before, int limit, int caloriesPerDay, int userId) {
+        return getFilteredTos(startDateTime, endDateTime, startTime, endTime, caloriesPerDay, userId).stream()
+                .filter(mealTo -> before == null || mealTo.getDateTime().isBefore(before))
+                .limit(limit)
+                .toList();
+    }
+
+    // ORDERED userId, dateTime desc, all users for null userId; consumer accepts (mealTo, userId) while rows are read
+    default void exportTos(@Nullable Integer userId, ObjIntConsumer<MealTo> consumer) {
+        throw new UnsupportedOperationException();
+    }
+
     default Meal getWithUser(int id, int userId) {
         throw new UnsupportedOperationException();
     }
+
+    // meals of all users before date (exclusive) with their daily totals, number of deleted meals
+    default int deleteBefore(LocalDate date) {
+        throw new UnsupportedOperationException();
+    }
+
+    // recalculate all daily totals from meals, number of (user, day) totals
+    default int rebuildDailyTotals() {
+        throw new UnsupportedOperationException();
+    }
+
+    // number of inconsistent (user, day) totals
+    default int checkDailyTotals() {
+        throw new UnsupportedOperationException();
+    }
 }
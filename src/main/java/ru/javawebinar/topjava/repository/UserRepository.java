@@ -1,6 +1,8 @@
 package ru.javawebinar.topjava.repository;
 
 import ru.javawebinar.topjava.model.User;
+import ru.javawebinar.topjava.to.UserTo;
+import ru.javawebinar.topjava.util.UsersUtil;
 
 import java.util.List;
 
@@ -19,6 +21,22 @@ public interface UserRepository {
 
     List<User> getAll();
 
+    // false if not found
+    default boolean enable(int id, boolean enabled) {
+        User user = get(id);
+        if (user == null) {
+            return false;
+        }
+        user.setEnabled(enabled);
+        return save(user) != null;
+    }
+
+    // false if not found
+    default boolean update(UserTo userTo) {
+        User user = get(userTo.id());
+        return user != null && save(UsersUtil.updateFromTo(user, userTo)) != null;
+    }
+
     default User getWithMeals(int id) {
         throw new UnsupportedOperationException();
     }
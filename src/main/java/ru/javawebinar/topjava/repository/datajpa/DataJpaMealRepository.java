@@ -1,44 +1,103 @@
 package ru.javawebinar.topjava.repository.datajpa;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.repository.MealRepository;
+import ru.javawebinar.topjava.repository.jdbc.JdbcMealDailyTotalRepository;
+import ru.javawebinar.topjava.repository.jpa.StatelessMealBulkRepository;
+import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.util.ValidationUtil;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 @Repository
 public class DataJpaMealRepository implements MealRepository {
 
     private final CrudMealRepository crudMealRepository;
     private final CrudUserRepository crudUserRepository;
+    private final JdbcMealDailyTotalRepository dailyTotalRepository;
+    private final StatelessMealBulkRepository bulkRepository;
 
-    public DataJpaMealRepository(CrudMealRepository crudMealRepository, CrudUserRepository crudUserRepository) {
+    public DataJpaMealRepository(CrudMealRepository crudMealRepository, CrudUserRepository crudUserRepository,
+                                 JdbcMealDailyTotalRepository dailyTotalRepository, StatelessMealBulkRepository bulkRepository) {
         this.crudMealRepository = crudMealRepository;
         this.crudUserRepository = crudUserRepository;
+        this.dailyTotalRepository = dailyTotalRepository;
+        this.bulkRepository = bulkRepository;
     }
 
     @Override
     @Transactional
     public Meal save(Meal meal, int userId) {
-        if (!meal.isNew() && get(meal.id(), userId) == null) {
+        dailyTotalRepository.lock(userId);
+        meal.setUser(crudUserRepository.getReferenceById(userId));
+        if (meal.isNew()) {
+            // daily totals are recalculated by SQL from the flushed meals
+            Meal saved = crudMealRepository.saveAndFlush(meal);
+            dailyTotalRepository.update(userId, saved.getDate());
+            return saved;
+        }
+        // ownership-checked UPDATE instead of findById + merge, bulk update skips Hibernate validation
+        ValidationUtil.validate(meal);
+        LocalDate oldDate = dailyTotalRepository.getDate(meal.id(), userId);
+        if (oldDate == null ||
+                crudMealRepository.update(meal.id(), meal.getDateTime(), meal.getDescription(), meal.getCalories(), userId) == 0) {
             return null;
         }
-        meal.setUser(crudUserRepository.getReferenceById(userId));
-        return crudMealRepository.save(meal);
+        dailyTotalRepository.update(userId, oldDate, meal.getDate());
+        return meal;
+    }
+
+    // JDBC batches of stateless session, no managed meals
+    @Override
+    @Transactional
+    public List<Meal> saveAll(List<Meal> meals, int userId) {
+        dailyTotalRepository.lock(userId);
+        bulkRepository.insertAll(meals, userId);
+        dailyTotalRepository.update(userId, meals);
+        return meals;
+    }
+
+    // check and insert in one transaction under the user lock: a concurrent insert of the same dateTime waits for its commit
+    @Override
+    @Transactional
+    public Set<LocalDateTime> saveAllAbsent(List<Meal> meals, int userId) {
+        dailyTotalRepository.lock(userId);
+        return MealRepository.super.saveAllAbsent(meals, userId);
     }
 
     @Override
+    @Transactional
     public boolean delete(int id, int userId) {
-        return crudMealRepository.delete(id, userId) != 0;
+        dailyTotalRepository.lock(userId);
+        LocalDate date = dailyTotalRepository.getDate(id, userId);
+        if (date == null || crudMealRepository.delete(id, userId) == 0) {
+            return false;
+        }
+        dailyTotalRepository.update(userId, date);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public int deleteBefore(LocalDate date) {
+        int deleted = bulkRepository.deleteBefore(date.atStartOfDay());
+        dailyTotalRepository.deleteBefore(date);
+        return deleted;
     }
 
     @Override
     public Meal get(int id, int userId) {
-        return crudMealRepository.findById(id)
-                .filter(meal -> meal.getUser().getId() == userId)
-                .orElse(null);
+        return crudMealRepository.get(id, userId);
     }
 
     @Override
@@ -46,13 +105,56 @@ public class DataJpaMealRepository implements MealRepository {
         return crudMealRepository.getAll(userId);
     }
 
+    @Override
+    public List<Meal> getAllForTos(int userId) {
+        return crudMealRepository.getAllForTos(userId);
+    }
+
     @Override
     public List<Meal> getBetweenHalfOpen(LocalDateTime startDateTime, LocalDateTime endDateTime, int userId) {
         return crudMealRepository.getBetweenHalfOpen(startDateTime, endDateTime, userId);
     }
 
+    @Override
+    public Set<LocalDateTime> getExistingDateTimes(Collection<LocalDateTime> dateTimes, int userId) {
+        return dailyTotalRepository.getExistingDateTimes(dateTimes, userId);
+    }
+
+    @Override
+    public List<Meal> getBetweenHalfOpen(LocalDateTime startDateTime, LocalDateTime endDateTime, int limit, int userId) {
+        return crudMealRepository.getBetweenHalfOpen(startDateTime, endDateTime, userId, PageRequest.ofSize(limit));
+    }
+
     @Override
     public Meal getWithUser(int id, int userId) {
         return crudMealRepository.getWithUser(id, userId);
     }
+
+    @Override
+    public List<MealTo> getFilteredTos(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                       @Nullable LocalTime startTime, @Nullable LocalTime endTime, int caloriesPerDay, int userId) {
+        return dailyTotalRepository.getFilteredTos(startDateTime, endDateTime, startTime, endTime, caloriesPerDay, userId);
+    }
+
+    @Override
+    public List<MealTo> getFilteredTosPage(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                           @Nullable LocalTime startTime, @Nullable LocalTime endTime,
+                                           @Nullable LocalDateTime before, int limit, int caloriesPerDay, int userId) {
+        return dailyTotalRepository.getFilteredTosPage(startDateTime, endDateTime, startTime, endTime, before, limit, caloriesPerDay, userId);
+    }
+
+    @Override
+    public void exportTos(@Nullable Integer userId, ObjIntConsumer<MealTo> consumer) {
+        dailyTotalRepository.export(userId, consumer);
+    }
+
+    @Override
+    public int rebuildDailyTotals() {
+        return dailyTotalRepository.rebuild();
+    }
+
+    @Override
+    public int checkDailyTotals() {
+        return dailyTotalRepository.check();
+    }
 }
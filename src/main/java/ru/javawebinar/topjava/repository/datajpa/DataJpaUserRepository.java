@@ -2,8 +2,10 @@ package ru.javawebinar.topjava.repository.datajpa;
 
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.javawebinar.topjava.model.User;
 import ru.javawebinar.topjava.repository.UserRepository;
+import ru.javawebinar.topjava.repository.jpa.StatelessMealBulkRepository;
 
 import java.util.List;
 
@@ -12,9 +14,11 @@ public class DataJpaUserRepository implements UserRepository {
     private static final Sort SORT_NAME_EMAIL = Sort.by(Sort.Direction.ASC, "name", "email");
 
     private final CrudUserRepository crudRepository;
+    private final StatelessMealBulkRepository mealBulkRepository;
 
-    public DataJpaUserRepository(CrudUserRepository crudRepository) {
+    public DataJpaUserRepository(CrudUserRepository crudRepository, StatelessMealBulkRepository mealBulkRepository) {
         this.crudRepository = crudRepository;
+        this.mealBulkRepository = mealBulkRepository;
     }
 
     @Override
@@ -23,8 +27,14 @@ public class DataJpaUserRepository implements UserRepository {
     }
 
     @Override
+    @Transactional
     public boolean delete(int id) {
-        return crudRepository.delete(id) != 0;
+        if (crudRepository.delete(id) == 0) {
+            return false;
+        }
+        // meals are deleted by DB cascade, unseen by Hibernate cache
+        mealBulkRepository.evictMeals();
+        return true;
     }
 
     @Override
@@ -0,0 +1,208 @@
+package ru.javawebinar.topjava.repository.jdbc;
+
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.MealTo;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Calories sum of the user's day in <code>meal_daily_total</code>.
+ * <p>
+ * Shared by all {@link ru.javawebinar.topjava.repository.MealRepository} implementations:
+ * it must be called inside their write transaction after the meal changes are flushed to DB.
+ * Days are recalculated from <code>meal</code>, so the repeated call for the same day is harmless.
+ * <p>
+ * Writers of the user's meals must {@link #lock} the user before the first meal change: otherwise under READ COMMITTED
+ * concurrent writers of the same day both delete and insert its total (PK violation) or miss each other's meals in SUM.
+ */
+@Transactional(propagation = Propagation.MANDATORY)
+public class JdbcMealDailyTotalRepository {
+
+    private static final String SELECT_DAILY_TOTALS = """
+            SELECT user_id, CAST(date_time AS DATE) AS meal_date, SUM(calories) AS calories
+              FROM meal
+            """;
+
+    // rows of forward-only cursor held by JDBC driver at a time
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public JdbcMealDailyTotalRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    // null if meal does not belong to userId
+    @Nullable
+    public LocalDate getDate(int id, int userId) {
+        List<Date> dates = jdbcTemplate.queryForList(
+                "SELECT CAST(date_time AS DATE) FROM meal WHERE id=? AND user_id=?", Date.class, id, userId);
+        Date date = DataAccessUtils.singleResult(dates);
+        return date == null ? null : date.toLocalDate();
+    }
+
+    // dateTimes of the user's meals present among dateTimes: lookup of (user_id, date_time) unique index, dateTimes only
+    @Transactional(readOnly = true)
+    public Set<LocalDateTime> getExistingDateTimes(Collection<LocalDateTime> dateTimes, int userId) {
+        if (dateTimes.isEmpty()) {
+            return Set.of();
+        }
+        MapSqlParameterSource map = new MapSqlParameterSource()
+                .addValue("user_id", userId)
+                .addValue("date_times", dateTimes);
+        return new HashSet<>(namedParameterJdbcTemplate.query(
+                "SELECT date_time FROM meal WHERE user_id=:user_id AND date_time IN (:date_times)",
+                map, (rs, rowNum) -> rs.getObject(1, LocalDateTime.class)));
+    }
+
+    /**
+     * Serializes writers of the user's meals till the end of transaction: the last of them recalculates the days
+     * after the others are committed. Taken before the meal changes, as the lock after them deadlocks on Postgres
+     * with <code>FOR KEY SHARE</code> of the other writer's <code>meal.user_id</code> foreign key check.
+     */
+    public void lock(int userId) {
+        jdbcTemplate.queryForList("SELECT id FROM users WHERE id=? FOR UPDATE", Integer.class, userId);
+    }
+
+    public void update(int userId, LocalDate date) {
+        jdbcTemplate.update("DELETE FROM meal_daily_total WHERE user_id=? AND meal_date=?", userId, date);
+        jdbcTemplate.update("INSERT INTO meal_daily_total (user_id, meal_date, calories) " + SELECT_DAILY_TOTALS +
+                        " WHERE user_id=? AND date_time >= ? AND date_time < ? GROUP BY user_id, CAST(date_time AS DATE)",
+                userId, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    // days of the meals, by two batch statements
+    public void update(int userId, Collection<Meal> meals) {
+        Set<LocalDate> dates = meals.stream().map(Meal::getDate).collect(Collectors.toSet());
+        jdbcTemplate.batchUpdate("DELETE FROM meal_daily_total WHERE user_id=? AND meal_date=?", dates, dates.size(),
+                (ps, date) -> {
+                    ps.setInt(1, userId);
+                    ps.setObject(2, date);
+                });
+        jdbcTemplate.batchUpdate("INSERT INTO meal_daily_total (user_id, meal_date, calories) " + SELECT_DAILY_TOTALS +
+                        " WHERE user_id=? AND date_time >= ? AND date_time < ? GROUP BY user_id, CAST(date_time AS DATE)",
+                dates, dates.size(),
+                (ps, date) -> {
+                    ps.setInt(1, userId);
+                    ps.setObject(2, date.atStartOfDay());
+                    ps.setObject(3, date.plusDays(1).atStartOfDay());
+                });
+    }
+
+    public void update(int userId, @Nullable LocalDate oldDate, LocalDate newDate) {
+        if (oldDate != null && !oldDate.equals(newDate)) {
+            update(userId, oldDate);
+        }
+        update(userId, newDate);
+    }
+
+    // days of all users before date (exclusive), their meals must be deleted
+    public void deleteBefore(LocalDate date) {
+        jdbcTemplate.update("DELETE FROM meal_daily_total WHERE meal_date < ?", date);
+    }
+
+    // number of (user, day) totals
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.update("DELETE FROM meal_daily_total");
+        return jdbcTemplate.update("INSERT INTO meal_daily_total (user_id, meal_date, calories) " + SELECT_DAILY_TOTALS +
+                " GROUP BY user_id, CAST(date_time AS DATE)");
+    }
+
+    // number of (user, day) totals, which are absent, redundant or differ from meal
+    @Transactional(readOnly = true)
+    public int check() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (" + SELECT_DAILY_TOTALS +
+                "  GROUP BY user_id, CAST(date_time AS DATE)) m " +
+                "  FULL JOIN meal_daily_total t ON t.user_id=m.user_id AND t.meal_date=m.meal_date " +
+                " WHERE m.calories IS NULL OR t.calories IS NULL OR m.calories <> t.calories", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    // ORDERED dateTime desc, excess by meal_daily_total
+    @Transactional(readOnly = true)
+    public List<MealTo> getFilteredTos(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                       @Nullable LocalTime startTime, @Nullable LocalTime endTime, int caloriesPerDay, int userId) {
+        return getFilteredTosPage(startDateTime, endDateTime, startTime, endTime, null, null, caloriesPerDay, userId);
+    }
+
+    /**
+     * Keyset page: backward range scan of (user_id, date_time) unique index from the cursor,
+     * so the cost doesn't depend on the page depth (unlike OFFSET)
+     */
+    @Transactional(readOnly = true)
+    public List<MealTo> getFilteredTosPage(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                           @Nullable LocalTime startTime, @Nullable LocalTime endTime,
+                                           @Nullable LocalDateTime before, @Nullable Integer limit, int caloriesPerDay, int userId) {
+        MapSqlParameterSource map = new MapSqlParameterSource()
+                .addValue("user_id", userId)
+                .addValue("start_date_time", startDateTime)
+                .addValue("end_date_time", endDateTime)
+                .addValue("start_time", startTime)
+                .addValue("end_time", endTime)
+                .addValue("before", before)
+                .addValue("limit", limit);
+
+        return namedParameterJdbcTemplate.query("""
+                        SELECT m.id, m.date_time, m.description, m.calories, t.calories AS day_calories
+                          FROM meal m
+                          JOIN meal_daily_total t ON t.user_id=m.user_id AND t.meal_date=CAST(m.date_time AS DATE)
+                         WHERE m.user_id=:user_id AND m.date_time >= :start_date_time AND m.date_time < :end_date_time
+                        """ +
+                        (startTime == null ? "" : " AND CAST(m.date_time AS TIME) >= :start_time") +
+                        (endTime == null ? "" : " AND CAST(m.date_time AS TIME) < :end_time") +
+                        (before == null ? "" : " AND m.date_time < :before") +
+                        " ORDER BY m.date_time DESC" +
+                        (limit == null ? "" : " LIMIT :limit"),
+                map, (rs, rowNum) -> new MealTo(rs.getInt(1), rs.getObject(2, LocalDateTime.class),
+                        rs.getString(3), rs.getInt(4), rs.getInt(5) > caloriesPerDay));
+    }
+
+    /**
+     * ORDERED userId, dateTime desc, all users for null userId.
+     * Rows are passed to consumer while they are read by forward-only cursor, excess by user's caloriesPerDay
+     */
+    @Transactional(readOnly = true)
+    public void export(@Nullable Integer userId, ObjIntConsumer<MealTo> consumer) {
+        String sql = """
+                SELECT m.user_id, m.id, m.date_time, m.description, m.calories, t.calories AS day_calories, u.calories_per_day
+                  FROM meal m
+                  JOIN meal_daily_total t ON t.user_id=m.user_id AND t.meal_date=CAST(m.date_time AS DATE)
+                  JOIN users u ON u.id=m.user_id
+                """ +
+                (userId == null ? "" : " WHERE m.user_id=?") +
+                " ORDER BY m.user_id, m.date_time DESC";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            if (userId != null) {
+                ps.setInt(1, userId);
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(
+                new MealTo(rs.getInt(2), rs.getObject(3, LocalDateTime.class), rs.getString(4), rs.getInt(5), rs.getInt(6) > rs.getInt(7)),
+                rs.getInt(1)));
+    }
+}
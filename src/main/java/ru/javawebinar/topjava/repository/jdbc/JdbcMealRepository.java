@@ -1,26 +1,37 @@
 package ru.javawebinar.topjava.repository.jdbc;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.support.DataAccessUtils;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.repository.MealRepository;
+import ru.javawebinar.topjava.to.MealTo;
 import ru.javawebinar.topjava.util.ValidationUtil;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 @Repository
 @Transactional(readOnly = true)
 public class JdbcMealRepository implements MealRepository {
 
-    private static final RowMapper<Meal> ROW_MAPPER = BeanPropertyRowMapper.newInstance(Meal.class);
+    static final String COLUMNS = "id, date_time, description, calories";
+
+    // by column index of COLUMNS, without reflection
+    static final RowMapper<Meal> ROW_MAPPER = (rs, rowNum) ->
+            new Meal(rs.getInt(1), rs.getObject(2, LocalDateTime.class), rs.getString(3), rs.getInt(4));
 
     private final JdbcTemplate jdbcTemplate;
 
@@ -28,19 +39,30 @@ public class JdbcMealRepository implements MealRepository {
 
     private final SimpleJdbcInsert insertMeal;
 
-    public JdbcMealRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    private final JdbcMealDailyTotalRepository dailyTotalRepository;
+
+    private final PooledLoIdGenerator idGenerator;
+
+    public JdbcMealRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                              JdbcMealDailyTotalRepository dailyTotalRepository,
+                              @Qualifier("mealIdGenerator") PooledLoIdGenerator idGenerator) {
         this.insertMeal = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("meal")
-                .usingGeneratedKeyColumns("id");
+                .withTableName("meal");
 
         this.jdbcTemplate = jdbcTemplate;
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.dailyTotalRepository = dailyTotalRepository;
+        this.idGenerator = idGenerator;
     }
 
     @Override
     @Transactional
     public Meal save(Meal meal, int userId) {
         ValidationUtil.validate(meal);
+        boolean isNew = meal.isNew();
+        if (isNew) {
+            meal.setId(idGenerator.next());
+        }
 
         MapSqlParameterSource map = new MapSqlParameterSource()
                 .addValue("id", meal.getId())
@@ -49,43 +71,131 @@ public class JdbcMealRepository implements MealRepository {
                 .addValue("date_time", meal.getDateTime())
                 .addValue("user_id", userId);
 
-        if (meal.isNew()) {
-            Number newId = insertMeal.executeAndReturnKey(map);
-            meal.setId(newId.intValue());
+        dailyTotalRepository.lock(userId);
+        LocalDate oldDate = null;
+        if (isNew) {
+            insertMeal.execute(map);
         } else {
-            if (namedParameterJdbcTemplate.update("" +
+            oldDate = dailyTotalRepository.getDate(meal.id(), userId);
+            if (oldDate == null || namedParameterJdbcTemplate.update("" +
                     "UPDATE meal " +
                     "   SET description=:description, calories=:calories, date_time=:date_time " +
                     " WHERE id=:id AND user_id=:user_id", map) == 0) {
                 return null;
             }
         }
+        dailyTotalRepository.update(userId, oldDate, meal.getDate());
         return meal;
     }
 
+    // single batch insert with ids allocated in advance: one nextval per SEQ_ALLOCATION_SIZE meals, no generated keys
+    @Override
+    @Transactional
+    public List<Meal> saveAll(List<Meal> meals, int userId) {
+        meals.forEach(ValidationUtil::validate);
+        dailyTotalRepository.lock(userId);
+        int[] ids = idGenerator.next(meals.size());
+        for (int i = 0; i < ids.length; i++) {
+            meals.get(i).setId(ids[i]);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO meal (id, date_time, description, calories, user_id) VALUES (?, ?, ?, ?, ?)",
+                meals, meals.size(), (ps, meal) -> {
+                    ps.setInt(1, meal.id());
+                    ps.setObject(2, meal.getDateTime());
+                    ps.setString(3, meal.getDescription());
+                    ps.setInt(4, meal.getCalories());
+                    ps.setInt(5, userId);
+                });
+        dailyTotalRepository.update(userId, meals);
+        return meals;
+    }
+
+    // check and insert in one transaction under the user lock: a concurrent insert of the same dateTime waits for its commit
+    @Override
+    @Transactional
+    public Set<LocalDateTime> saveAllAbsent(List<Meal> meals, int userId) {
+        dailyTotalRepository.lock(userId);
+        return MealRepository.super.saveAllAbsent(meals, userId);
+    }
+
     @Override
     @Transactional
     public boolean delete(int id, int userId) {
-        return jdbcTemplate.update("DELETE FROM meal WHERE id=? AND user_id=?", id, userId) != 0;
+        dailyTotalRepository.lock(userId);
+        LocalDate date = dailyTotalRepository.getDate(id, userId);
+        if (date == null || jdbcTemplate.update("DELETE FROM meal WHERE id=? AND user_id=?", id, userId) == 0) {
+            return false;
+        }
+        dailyTotalRepository.update(userId, date);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public int deleteBefore(LocalDate date) {
+        int deleted = jdbcTemplate.update("DELETE FROM meal WHERE date_time < ?", date.atStartOfDay());
+        dailyTotalRepository.deleteBefore(date);
+        return deleted;
     }
 
     @Override
     public Meal get(int id, int userId) {
         List<Meal> meals = jdbcTemplate.query(
-                "SELECT * FROM meal WHERE id = ? AND user_id = ?", ROW_MAPPER, id, userId);
+                "SELECT " + COLUMNS + " FROM meal WHERE id = ? AND user_id = ?", ROW_MAPPER, id, userId);
         return DataAccessUtils.singleResult(meals);
     }
 
     @Override
     public List<Meal> getAll(int userId) {
         return jdbcTemplate.query(
-                "SELECT * FROM meal WHERE user_id=? ORDER BY date_time DESC", ROW_MAPPER, userId);
+                "SELECT " + COLUMNS + " FROM meal WHERE user_id=? ORDER BY date_time DESC", ROW_MAPPER, userId);
     }
 
     @Override
     public List<Meal> getBetweenHalfOpen(LocalDateTime startDateTime, LocalDateTime endDateTime, int userId) {
         return jdbcTemplate.query(
-                "SELECT * FROM meal WHERE user_id=?  AND date_time >=  ? AND date_time < ? ORDER BY date_time DESC",
+                "SELECT " + COLUMNS + " FROM meal WHERE user_id=?  AND date_time >=  ? AND date_time < ? ORDER BY date_time DESC",
                 ROW_MAPPER, userId, startDateTime, endDateTime);
     }
+
+    @Override
+    public Set<LocalDateTime> getExistingDateTimes(Collection<LocalDateTime> dateTimes, int userId) {
+        return dailyTotalRepository.getExistingDateTimes(dateTimes, userId);
+    }
+
+    @Override
+    public List<Meal> getBetweenHalfOpen(LocalDateTime startDateTime, LocalDateTime endDateTime, int limit, int userId) {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM meal WHERE user_id=? AND date_time >= ? AND date_time < ? ORDER BY date_time DESC LIMIT ?",
+                ROW_MAPPER, userId, startDateTime, endDateTime, limit);
+    }
+
+    @Override
+    public List<MealTo> getFilteredTos(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                       @Nullable LocalTime startTime, @Nullable LocalTime endTime, int caloriesPerDay, int userId) {
+        return dailyTotalRepository.getFilteredTos(startDateTime, endDateTime, startTime, endTime, caloriesPerDay, userId);
+    }
+
+    @Override
+    public List<MealTo> getFilteredTosPage(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                           @Nullable LocalTime startTime, @Nullable LocalTime endTime,
+                                           @Nullable LocalDateTime before, int limit, int caloriesPerDay, int userId) {
+        return dailyTotalRepository.getFilteredTosPage(startDateTime, endDateTime, startTime, endTime, before, limit, caloriesPerDay, userId);
+    }
+
+    @Override
+    public void exportTos(@Nullable Integer userId, ObjIntConsumer<MealTo> consumer) {
+        dailyTotalRepository.export(userId, consumer);
+    }
+
+    @Override
+    @Transactional
+    public int rebuildDailyTotals() {
+        return dailyTotalRepository.rebuild();
+    }
+
+    @Override
+    public int checkDailyTotals() {
+        return dailyTotalRepository.check();
+    }
 }
@@ -1,10 +1,13 @@
 package ru.javawebinar.topjava.repository.jdbc;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.support.DataAccessUtils;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
@@ -13,15 +16,29 @@ import org.springframework.util.CollectionUtils;
 import ru.javawebinar.topjava.model.Role;
 import ru.javawebinar.topjava.model.User;
 import ru.javawebinar.topjava.repository.UserRepository;
+import ru.javawebinar.topjava.to.UserTo;
 import ru.javawebinar.topjava.util.ValidationUtil;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Repository
 @Transactional(readOnly = true)
 public class JdbcUserRepository implements UserRepository {
 
-    private static final BeanPropertyRowMapper<User> ROW_MAPPER = BeanPropertyRowMapper.newInstance(User.class);
+    static final String COLUMNS = "id, name, email, password, calories_per_day, enabled, registered";
+
+    // user row for every role (or single row with null role), rows of a user are adjacent by the unique ORDER BY
+    private static final String SELECT_WITH_ROLES = """
+            SELECT u.id, u.name, u.email, u.password, u.calories_per_day, u.enabled, u.registered, r.role
+              FROM users u
+              LEFT JOIN user_role r ON r.user_id=u.id
+            """;
+
+    // by column index of COLUMNS, without reflection, roles are set separately
+    static final RowMapper<User> ROW_MAPPER = (rs, rowNum) ->
+            new User(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                    rs.getInt(5), rs.getBoolean(6), rs.getTimestamp(7), null);
 
     private final JdbcTemplate jdbcTemplate;
 
@@ -29,14 +46,17 @@ public class JdbcUserRepository implements UserRepository {
 
     private final SimpleJdbcInsert insertUser;
 
+    private final PooledLoIdGenerator idGenerator;
+
     @Autowired
-    public JdbcUserRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    public JdbcUserRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                              @Qualifier("userIdGenerator") PooledLoIdGenerator idGenerator) {
         this.insertUser = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("id");
+                .withTableName("users");
 
         this.jdbcTemplate = jdbcTemplate;
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.idGenerator = idGenerator;
     }
 
     @Override
@@ -44,28 +64,37 @@ public class JdbcUserRepository implements UserRepository {
     public User save(User user) {
         ValidationUtil.validate(user);
 
-        BeanPropertySqlParameterSource parameterSource = new BeanPropertySqlParameterSource(user);
-
         if (user.isNew()) {
-            Number newKey = insertUser.executeAndReturnKey(parameterSource);
-            user.setId(newKey.intValue());
+            user.setId(idGenerator.next());
+            insertUser.execute(new BeanPropertySqlParameterSource(user));
             insertRoles(user);
         } else {
             if (namedParameterJdbcTemplate.update("""
-                       UPDATE users SET name=:name, email=:email, password=:password, 
+                       UPDATE users SET name=:name, email=:email, password=:password,
                        registered=:registered, enabled=:enabled, calories_per_day=:caloriesPerDay WHERE id=:id
-                    """, parameterSource) == 0) {
+                    """, new BeanPropertySqlParameterSource(user)) == 0) {
                 return null;
             }
-            // Simplest implementation.
-            // More complicated : get user roles from DB and compare them with user.roles (assume that roles are changed rarely).
-            // If roles are changed, calculate difference in java and delete/insert them.
-            deleteRoles(user);
-            insertRoles(user);
+            // profile edits rarely touch roles: only user_role is read, the difference is written
+            updateRoles(user);
         }
         return user;
     }
 
+    @Override
+    @Transactional
+    public boolean enable(int id, boolean enabled) {
+        return jdbcTemplate.update("UPDATE users SET enabled=? WHERE id=?", enabled, id) != 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean update(UserTo userTo) {
+        ValidationUtil.validate(userTo);
+        return jdbcTemplate.update("UPDATE users SET name=?, email=?, password=?, calories_per_day=? WHERE id=?",
+                userTo.getName(), userTo.getEmail().toLowerCase(), userTo.getPassword(), userTo.getCaloriesPerDay(), userTo.id()) != 0;
+    }
+
     @Override
     @Transactional
     public boolean delete(int id) {
@@ -74,50 +103,66 @@ public class JdbcUserRepository implements UserRepository {
 
     @Override
     public User get(int id) {
-        List<User> users = jdbcTemplate.query("SELECT * FROM users WHERE id=?", ROW_MAPPER, id);
-        return setRoles(DataAccessUtils.singleResult(users));
+        return DataAccessUtils.singleResult(queryWithRoles(SELECT_WITH_ROLES + " WHERE u.id=?", id));
     }
 
     @Override
     public User getByEmail(String email) {
 //        return jdbcTemplate.queryForObject("SELECT * FROM users WHERE email=?", ROW_MAPPER, email);
-        List<User> users = jdbcTemplate.query("SELECT * FROM users WHERE email=?", ROW_MAPPER, email);
-        return setRoles(DataAccessUtils.singleResult(users));
+        return DataAccessUtils.singleResult(queryWithRoles(SELECT_WITH_ROLES + " WHERE u.email=?", email));
     }
 
     @Override
     public List<User> getAll() {
-        List<User> users = jdbcTemplate.query("SELECT * FROM users ORDER BY name, email", ROW_MAPPER);
-
-        Map<Integer, Set<Role>> map = new HashMap<>();
-        jdbcTemplate.query("SELECT * FROM user_role", rs -> {
-            map.computeIfAbsent(rs.getInt("user_id"), userId -> EnumSet.noneOf(Role.class))
-                    .add(Role.valueOf(rs.getString("role")));
-        });
-        users.forEach(u -> u.setRoles(map.get(u.getId())));
+        return queryWithRoles(SELECT_WITH_ROLES + " ORDER BY u.name, u.email");
+    }
+
+    // one round trip: user rows are folded while reading, without loading user_role separately
+    private List<User> queryWithRoles(String sql, Object... args) {
+        List<User> users = new ArrayList<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            User last = users.isEmpty() ? null : users.get(users.size() - 1);
+            if (last == null || last.id() != rs.getInt(1)) {
+                last = ROW_MAPPER.mapRow(rs, users.size());
+                users.add(last);
+            }
+            String role = rs.getString(8);
+            if (role != null) {
+                last.getRoles().add(Role.valueOf(role));
+            }
+        }, args);
         return users;
     }
 
-    private void insertRoles(User u) {
-        Set<Role> roles = u.getRoles();
-        if (!CollectionUtils.isEmpty(roles)) {
-            jdbcTemplate.batchUpdate("INSERT INTO user_role (user_id, role) VALUES (?, ?)", roles, roles.size(),
-                    (ps, role) -> {
-                        ps.setInt(1, u.id());
-                        ps.setString(2, role.name());
-                    });
+    // removed roles by one DELETE, added by one INSERT batch: nothing is written when roles are unchanged
+    private void updateRoles(User user) {
+        Set<Role> storedRoles = EnumSet.noneOf(Role.class);
+        jdbcTemplate.queryForList("SELECT role FROM user_role WHERE user_id=?", String.class, user.id())
+                .forEach(role -> storedRoles.add(Role.valueOf(role)));
+        Set<Role> roles = CollectionUtils.isEmpty(user.getRoles()) ? EnumSet.noneOf(Role.class) : user.getRoles();
+        Set<Role> removed = EnumSet.copyOf(storedRoles);
+        removed.removeAll(roles);
+        Set<Role> added = EnumSet.copyOf(roles);
+        added.removeAll(storedRoles);
+        if (!removed.isEmpty()) {
+            namedParameterJdbcTemplate.update("DELETE FROM user_role WHERE user_id=:user_id AND role IN (:roles)",
+                    new MapSqlParameterSource("user_id", user.id())
+                            .addValue("roles", removed.stream().map(Role::name).collect(Collectors.toList())));
         }
+        batchUpdateRoles("INSERT INTO user_role (user_id, role) VALUES (?, ?)", user.id(), added);
     }
 
-    private void deleteRoles(User u) {
-        jdbcTemplate.update("DELETE FROM user_role WHERE user_id=?", u.getId());
+    private void insertRoles(User u) {
+        batchUpdateRoles("INSERT INTO user_role (user_id, role) VALUES (?, ?)", u.id(), u.getRoles());
     }
 
-    private User setRoles(User u) {
-        if (u != null) {
-            List<Role> roles = jdbcTemplate.queryForList("SELECT role FROM user_role  WHERE user_id=?", Role.class, u.getId());
-            u.setRoles(roles);
+    private void batchUpdateRoles(String sql, int userId, Set<Role> roles) {
+        if (!CollectionUtils.isEmpty(roles)) {
+            jdbcTemplate.batchUpdate(sql, roles, roles.size(),
+                    (ps, role) -> {
+                        ps.setInt(1, userId);
+                        ps.setString(2, role.name());
+                    });
         }
-        return u;
     }
 }
@@ -0,0 +1,38 @@
+package ru.javawebinar.topjava.repository.jdbc;
+
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import ru.javawebinar.topjava.model.AbstractBaseEntity;
+
+/**
+ * Ids of JDBC inserts from the entity sequence, allocated the same pooled-lo way as Hibernate does:
+ * one <code>nextval</code> reserves [value, value + {@link AbstractBaseEntity#SEQ_ALLOCATION_SIZE}),
+ * the ids of the block are handed out in memory. Inserts by the column default would take a whole block per row.
+ */
+public class PooledLoIdGenerator {
+
+    private final DataFieldMaxValueIncrementer sequence;
+
+    private int next;
+    private int limit;
+
+    public PooledLoIdGenerator(DataFieldMaxValueIncrementer sequence) {
+        this.sequence = sequence;
+    }
+
+    public synchronized int next() {
+        if (next == limit) {
+            next = sequence.nextIntValue();
+            limit = next + AbstractBaseEntity.SEQ_ALLOCATION_SIZE;
+        }
+        return next++;
+    }
+
+    // ids of a batch: one nextval for every started block
+    public synchronized int[] next(int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = next();
+        }
+        return ids;
+    }
+}
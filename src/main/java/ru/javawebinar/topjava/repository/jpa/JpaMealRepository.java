@@ -1,15 +1,25 @@
 package ru.javawebinar.topjava.repository.jpa;
 
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.model.User;
 import ru.javawebinar.topjava.repository.MealRepository;
+import ru.javawebinar.topjava.repository.jdbc.JdbcMealDailyTotalRepository;
+import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.util.ValidationUtil;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 @Repository
 @Transactional(readOnly = true)
@@ -18,30 +28,90 @@ public class JpaMealRepository implements MealRepository {
     @PersistenceContext
     private EntityManager em;
 
+    private final JdbcMealDailyTotalRepository dailyTotalRepository;
+    private final StatelessMealBulkRepository bulkRepository;
+
+    public JpaMealRepository(JdbcMealDailyTotalRepository dailyTotalRepository, StatelessMealBulkRepository bulkRepository) {
+        this.dailyTotalRepository = dailyTotalRepository;
+        this.bulkRepository = bulkRepository;
+    }
+
     @Override
     @Transactional
     public Meal save(Meal meal, int userId) {
+        dailyTotalRepository.lock(userId);
         meal.setUser(em.getReference(User.class, userId));
         if (meal.isNew()) {
             em.persist(meal);
+            // daily totals are recalculated by SQL from the flushed meals
+            em.flush();
+            dailyTotalRepository.update(userId, meal.getDate());
             return meal;
         }
-        return get(meal.id(), userId) == null ? null : em.merge(meal);
+        // ownership-checked UPDATE instead of find + merge, bulk update skips Hibernate validation
+        ValidationUtil.validate(meal);
+        LocalDate oldDate = dailyTotalRepository.getDate(meal.id(), userId);
+        if (oldDate == null || em.createNamedQuery(Meal.UPDATE)
+                .setParameter("dateTime", meal.getDateTime())
+                .setParameter("description", meal.getDescription())
+                .setParameter("calories", meal.getCalories())
+                .setParameter("id", meal.id())
+                .setParameter("userId", userId)
+                .executeUpdate() == 0) {
+            return null;
+        }
+        dailyTotalRepository.update(userId, oldDate, meal.getDate());
+        return meal;
+    }
+
+    // JDBC batches of stateless session, no managed meals
+    @Override
+    @Transactional
+    public List<Meal> saveAll(List<Meal> meals, int userId) {
+        dailyTotalRepository.lock(userId);
+        bulkRepository.insertAll(meals, userId);
+        dailyTotalRepository.update(userId, meals);
+        return meals;
+    }
+
+    // check and insert in one transaction under the user lock: a concurrent insert of the same dateTime waits for its commit
+    @Override
+    @Transactional
+    public Set<LocalDateTime> saveAllAbsent(List<Meal> meals, int userId) {
+        dailyTotalRepository.lock(userId);
+        return MealRepository.super.saveAllAbsent(meals, userId);
     }
 
     @Override
     @Transactional
     public boolean delete(int id, int userId) {
-        return em.createNamedQuery(Meal.DELETE)
+        dailyTotalRepository.lock(userId);
+        LocalDate date = dailyTotalRepository.getDate(id, userId);
+        if (date == null || em.createNamedQuery(Meal.DELETE)
                 .setParameter("id", id)
                 .setParameter("userId", userId)
-                .executeUpdate() != 0;
+                .executeUpdate() == 0) {
+            return false;
+        }
+        dailyTotalRepository.update(userId, date);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public int deleteBefore(LocalDate date) {
+        int deleted = bulkRepository.deleteBefore(date.atStartOfDay());
+        dailyTotalRepository.deleteBefore(date);
+        return deleted;
     }
 
     @Override
     public Meal get(int id, int userId) {
-        Meal meal = em.find(Meal.class, id);
-        return meal != null && meal.getUser().getId() == userId ? meal : null;
+        List<Meal> meals = em.createNamedQuery(Meal.GET, Meal.class)
+                .setParameter("id", id)
+                .setParameter("userId", userId)
+                .getResultList();
+        return DataAccessUtils.singleResult(meals);
     }
 
     @Override
@@ -51,6 +121,13 @@ public class JpaMealRepository implements MealRepository {
                 .getResultList();
     }
 
+    @Override
+    public List<Meal> getAllForTos(int userId) {
+        return em.createNamedQuery(Meal.ALL_FOR_TOS, Meal.class)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
+
     @Override
     public List<Meal> getBetweenHalfOpen(LocalDateTime startDateTime, LocalDateTime endDateTime, int userId) {
         return em.createNamedQuery(Meal.GET_BETWEEN, Meal.class)
@@ -59,4 +136,48 @@ public class JpaMealRepository implements MealRepository {
                 .setParameter("endDateTime", endDateTime)
                 .getResultList();
     }
+
+    @Override
+    public Set<LocalDateTime> getExistingDateTimes(Collection<LocalDateTime> dateTimes, int userId) {
+        return dailyTotalRepository.getExistingDateTimes(dateTimes, userId);
+    }
+
+    @Override
+    public List<Meal> getBetweenHalfOpen(LocalDateTime startDateTime, LocalDateTime endDateTime, int limit, int userId) {
+        return em.createNamedQuery(Meal.GET_BETWEEN, Meal.class)
+                .setParameter("userId", userId)
+                .setParameter("startDateTime", startDateTime)
+                .setParameter("endDateTime", endDateTime)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<MealTo> getFilteredTos(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                       @Nullable LocalTime startTime, @Nullable LocalTime endTime, int caloriesPerDay, int userId) {
+        return dailyTotalRepository.getFilteredTos(startDateTime, endDateTime, startTime, endTime, caloriesPerDay, userId);
+    }
+
+    @Override
+    public List<MealTo> getFilteredTosPage(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                           @Nullable LocalTime startTime, @Nullable LocalTime endTime,
+                                           @Nullable LocalDateTime before, int limit, int caloriesPerDay, int userId) {
+        return dailyTotalRepository.getFilteredTosPage(startDateTime, endDateTime, startTime, endTime, before, limit, caloriesPerDay, userId);
+    }
+
+    @Override
+    public void exportTos(@Nullable Integer userId, ObjIntConsumer<MealTo> consumer) {
+        dailyTotalRepository.export(userId, consumer);
+    }
+
+    @Override
+    @Transactional
+    public int rebuildDailyTotals() {
+        return dailyTotalRepository.rebuild();
+    }
+
+    @Override
+    public int checkDailyTotals() {
+        return dailyTotalRepository.check();
+    }
 }
\ No newline at end of file
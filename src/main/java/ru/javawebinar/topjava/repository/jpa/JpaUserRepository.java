@@ -27,6 +27,12 @@ public class JpaUserRepository implements UserRepository {
     @PersistenceContext
     private EntityManager em;
 
+    private final StatelessMealBulkRepository mealBulkRepository;
+
+    public JpaUserRepository(StatelessMealBulkRepository mealBulkRepository) {
+        this.mealBulkRepository = mealBulkRepository;
+    }
+
     @Override
     @Transactional
     public User save(User user) {
@@ -53,9 +59,14 @@ public class JpaUserRepository implements UserRepository {
         Query query = em.createQuery("DELETE FROM User u WHERE u.id=:id");
         return query.setParameter("id", id).executeUpdate() != 0;
 */
-        return em.createNamedQuery(User.DELETE)
+        if (em.createNamedQuery(User.DELETE)
                 .setParameter("id", id)
-                .executeUpdate() != 0;
+                .executeUpdate() == 0) {
+            return false;
+        }
+        // meals are deleted by DB cascade, unseen by Hibernate cache
+        mealBulkRepository.evictMeals();
+        return true;
     }
 
     @Override
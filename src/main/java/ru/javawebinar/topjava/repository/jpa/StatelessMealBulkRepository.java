@@ -0,0 +1,101 @@
+package ru.javawebinar.topjava.repository.jpa;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.model.User;
+import ru.javawebinar.topjava.util.ValidationUtil;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bulk meal writes by Hibernate {@link StatelessSession}: no persistence context, so memory doesn't depend on the number of meals,
+ * statements are grouped into JDBC batches of <code>hibernate.jdbc.batch_size</code>.
+ * <p>
+ * Shared by jpa/datajpa meal repositories, must be called inside their write transaction:
+ * the session works on its JDBC connection. Stateless writes bypass the second-level cache,
+ * so meal cache regions are evicted after them and once more after the transaction completes.
+ */
+@Transactional(propagation = Propagation.MANDATORY)
+public class StatelessMealBulkRepository {
+
+    private final SessionFactory sessionFactory;
+    private final DataSource dataSource;
+
+    public StatelessMealBulkRepository(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.dataSource = dataSource;
+    }
+
+    // new meals only, ids are set into meals; stateless session skips Hibernate validation
+    public List<Meal> insertAll(List<Meal> meals, int userId) {
+        meals.forEach(ValidationUtil::validate);
+        User user = new User();
+        user.setId(userId);
+        execute(session -> {
+            for (Meal meal : meals) {
+                meal.setUser(user);
+                session.insert(meal);
+            }
+            return meals.size();
+        });
+        // new meals are not in the entity region
+        evictNowAndAfterCompletion(() -> sessionFactory.getCache().evictQueryRegion(Meal.QUERY_CACHE_REGION));
+        return meals;
+    }
+
+    // meals of all users before dateTime (exclusive) by one bulk DELETE, number of deleted meals
+    public int deleteBefore(LocalDateTime dateTime) {
+        int deleted = execute(session -> session.createQuery("DELETE FROM Meal m WHERE m.dateTime < :dateTime")
+                .setParameter("dateTime", dateTime)
+                .executeUpdate());
+        evictMeals();
+        return deleted;
+    }
+
+    /**
+     * For meal changes unseen by Hibernate (stateless session, DB cascade): meal regions are evicted now and after the transaction completes,
+     * as a concurrent read before commit could cache the old rows again
+     */
+    public void evictMeals() {
+        evictNowAndAfterCompletion(() -> {
+            Cache cache = sessionFactory.getCache();
+            cache.evictEntityData(Meal.class);
+            cache.evictQueryRegion(Meal.QUERY_CACHE_REGION);
+        });
+    }
+
+    private static void evictNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                eviction.run();
+            }
+        });
+    }
+
+    private int execute(ToIntFunction<StatelessSession> work) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (StatelessSession session = sessionFactory.openStatelessSession(connection)) {
+            int result = work.applyAsInt(session);
+            // stateless session has no flush: the last incomplete JDBC batch is executed explicitly
+            ((SharedSessionContractImplementor) session).getJdbcCoordinator().executeBatch();
+            return result;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ru.javawebinar.topjava.service;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.javawebinar.topjava.AuthorizedUser;
+import ru.javawebinar.topjava.to.AuthenticationStatsTo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-JVM cache of successful authentications of stateless REST requests (<code>ru.javawebinar.topjava:name=authorizedUserCache</code>):
+ * {@link AuthorizedUser} by email, valid only for the same password (salted SHA-256 fingerprint, the password itself is not kept).
+ * <p>
+ * {@link UserService} writes evict the user immediately and once more after the transaction completes.
+ * Entries expire <code>ttl</code> after the authentication (changes outside of {@link UserService}),
+ * the oldest authentications are evicted above <code>maxUsers</code>.
+ */
+@Component
+@ManagedResource(objectName = "ru.javawebinar.topjava:name=authorizedUserCache", description = "REST authentication cache")
+public class AuthorizedUserCache {
+    private static final int MAX_USERS = Integer.getInteger("topjava.authCache.maxUsers", 10_000);
+    private static final Duration TTL = Duration.ofSeconds(Long.getLong("topjava.authCache.ttlSeconds", 300));
+
+    private final int maxUsers;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final byte[] salt = new byte[16];
+
+    // insertion ordered: the oldest authentication first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    // any eviction, guards loaded user against concurrent change
+    private long writes;
+    private long hits;
+    private long misses;
+    private long startTime = System.currentTimeMillis();
+
+    public AuthorizedUserCache() {
+        this(MAX_USERS, TTL, System::nanoTime);
+    }
+
+    AuthorizedUserCache(int maxUsers, Duration ttl, LongSupplier nanoClock) {
+        this.maxUsers = maxUsers;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * @param authenticator authenticates by email and password, called on miss outside the cache lock;
+     *                      its exception is propagated and nothing is cached
+     */
+    public AuthorizedUser get(String email, String password, Supplier<AuthorizedUser> authenticator) {
+        byte[] fingerprint = fingerprint(password);
+        long version;
+        synchronized (this) {
+            evictExpired(nanoClock.getAsLong());
+            Entry entry = entries.get(email);
+            if (entry != null && MessageDigest.isEqual(entry.fingerprint, fingerprint)) {
+                hits++;
+                return entry.user;
+            }
+            misses++;
+            version = writes;
+        }
+        AuthorizedUser user = authenticator.get();
+        synchronized (this) {
+            if (version == writes) {
+                entries.remove(email);
+                entries.put(email, new Entry(fingerprint, user, nanoClock.getAsLong()));
+                evictOverflow();
+            }
+        }
+        return user;
+    }
+
+    public synchronized void evict(int userId) {
+        remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                // user could be authenticated by not yet committed (or rolled back) data
+                @Override
+                public void afterCompletion(int status) {
+                    remove(userId);
+                }
+            });
+        }
+    }
+
+    public synchronized AuthenticationStatsTo getStats() {
+        return new AuthenticationStatsTo(Instant.ofEpochMilli(startTime), hits, misses, getHitRatio(), entries.size(), maxUsers, getTtl());
+    }
+
+    @ManagedOperation(description = "Evict all users")
+    public synchronized void clear() {
+        writes++;
+        entries.clear();
+    }
+
+    @ManagedOperation(description = "Reset hit/miss counters")
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        startTime = System.currentTimeMillis();
+    }
+
+    @ManagedAttribute
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @ManagedAttribute
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @ManagedAttribute(description = "hits / (hits + misses), 0 without authentications")
+    public synchronized double getHitRatio() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @ManagedAttribute
+    public synchronized int getCachedUsers() {
+        return entries.size();
+    }
+
+    @ManagedAttribute
+    public int getMaxUsers() {
+        return maxUsers;
+    }
+
+    @ManagedAttribute(description = "s")
+    public long getTtl() {
+        return Duration.ofNanos(ttlNanos).toSeconds();
+    }
+
+    private synchronized void remove(int userId) {
+        writes++;
+        entries.values().removeIf(entry -> entry.user.getId() == userId);
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxUsers && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext() && now - iterator.next().created >= ttlNanos) {
+            iterator.remove();
+        }
+    }
+
+    private byte[] fingerprint(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        private final byte[] fingerprint;
+        private final AuthorizedUser user;
+        private final long created;
+
+        Entry(byte[] fingerprint, AuthorizedUser user, long created) {
+            this.fingerprint = fingerprint;
+            this.user = user;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ru.javawebinar.topjava.service;
+
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import ru.javawebinar.topjava.to.DataSourceStatsTo;
+import ru.javawebinar.topjava.util.MeteredDataSource;
+import ru.javawebinar.topjava.util.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Connection pool saturation for REST and JMX (<code>ru.javawebinar.topjava:name=dataSourceStats</code>):
+ * pool counters of tomcat-jdbc and acquisition time histogram of {@link MeteredDataSource}.
+ * With replication pool counters are of primary, replica pools are counted separately (<code>Replica*</code> attributes),
+ * acquisitions are metered for all pools together.
+ */
+@ManagedResource(objectName = "ru.javawebinar.topjava:name=dataSourceStats", description = "DataSource pool statistics")
+public class DataSourceStatsService {
+
+    private final MeteredDataSource dataSource;
+    private final DataSourceProxy pool;
+    private final List<DataSourceProxy> replicas;
+
+    // dataSource is MeteredDataSource or wraps it (LazyConnectionDataSourceProxy of replication profile)
+    public DataSourceStatsService(DataSource dataSource) {
+        while (!(dataSource instanceof MeteredDataSource) && dataSource instanceof DelegatingDataSource) {
+            dataSource = ((DelegatingDataSource) dataSource).getTargetDataSource();
+        }
+        Assert.isInstanceOf(MeteredDataSource.class, dataSource, "dataSource must be metered");
+        this.dataSource = (MeteredDataSource) dataSource;
+        DataSource target = this.dataSource.getTargetDataSource();
+        List<DataSource> replicaTargets = List.of();
+        if (target instanceof ReadWriteRoutingDataSource) {
+            replicaTargets = ((ReadWriteRoutingDataSource) target).getReplicas();
+            target = ((ReadWriteRoutingDataSource) target).getPrimary();
+        }
+        this.pool = asPool(target);
+        this.replicas = new ArrayList<>(replicaTargets.size());
+        replicaTargets.forEach(replica -> replicas.add(asPool(replica)));
+    }
+
+    public DataSourceStatsTo getStats() {
+        long[] counts = dataSource.getHistogram();
+        List<DataSourceStatsTo.BucketTo> histogram = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            histogram.add(new DataSourceStatsTo.BucketTo(
+                    i < MeteredDataSource.BUCKET_BOUNDS_MILLIS.length ? MeteredDataSource.BUCKET_BOUNDS_MILLIS[i] : null, counts[i]));
+        }
+        List<DataSourceStatsTo.PoolTo> replicaPools = new ArrayList<>(replicas.size());
+        replicas.forEach(replica -> replicaPools.add(new DataSourceStatsTo.PoolTo(
+                count(replica, DataSourceProxy::getMaxActive), count(replica, DataSourceProxy::getSize),
+                count(replica, DataSourceProxy::getActive), count(replica, DataSourceProxy::getIdle),
+                count(replica, DataSourceProxy::getWaitCount))));
+        return new DataSourceStatsTo(Instant.ofEpochMilli(dataSource.getStartTime()), getMaxActive(), getSize(), getActive(),
+                getIdle(), getPending(), dataSource.getCount(), dataSource.getFailures(), dataSource.getAvgMillis(),
+                dataSource.getMaxMillis(), histogram, replicaPools);
+    }
+
+    @ManagedOperation(description = "Reset acquisition counters")
+    public void reset() {
+        dataSource.reset();
+    }
+
+    @ManagedAttribute
+    public int getMaxActive() {
+        return count(pool, DataSourceProxy::getMaxActive);
+    }
+
+    @ManagedAttribute(description = "Open connections")
+    public int getSize() {
+        return count(pool, DataSourceProxy::getSize);
+    }
+
+    @ManagedAttribute(description = "Borrowed connections")
+    public int getActive() {
+        return count(pool, DataSourceProxy::getActive);
+    }
+
+    @ManagedAttribute
+    public int getIdle() {
+        return count(pool, DataSourceProxy::getIdle);
+    }
+
+    @ManagedAttribute(description = "Threads waiting for a connection")
+    public int getPending() {
+        return count(pool, DataSourceProxy::getWaitCount);
+    }
+
+    @ManagedAttribute(description = "Borrowed connections by replica, empty without replication")
+    public int[] getReplicaActive() {
+        return replicas.stream().mapToInt(replica -> count(replica, DataSourceProxy::getActive)).toArray();
+    }
+
+    @ManagedAttribute(description = "Idle connections by replica, empty without replication")
+    public int[] getReplicaIdle() {
+        return replicas.stream().mapToInt(replica -> count(replica, DataSourceProxy::getIdle)).toArray();
+    }
+
+    @ManagedAttribute(description = "Threads waiting for a connection by replica, empty without replication")
+    public int[] getReplicaPending() {
+        return replicas.stream().mapToInt(replica -> count(replica, DataSourceProxy::getWaitCount)).toArray();
+    }
+
+    @ManagedAttribute
+    public long getAcquisitionCount() {
+        return dataSource.getCount();
+    }
+
+    @ManagedAttribute
+    public long getAcquisitionFailures() {
+        return dataSource.getFailures();
+    }
+
+    @ManagedAttribute(description = "ms")
+    public double getAcquisitionAvgTime() {
+        return dataSource.getAvgMillis();
+    }
+
+    @ManagedAttribute(description = "ms")
+    public double getAcquisitionMaxTime() {
+        return dataSource.getMaxMillis();
+    }
+
+    @ManagedAttribute(description = "Acquisitions by upper bounds of AcquisitionHistogramBounds, the last is above all")
+    public long[] getAcquisitionHistogram() {
+        return dataSource.getHistogram();
+    }
+
+    @ManagedAttribute(description = "ms, inclusive")
+    public long[] getAcquisitionHistogramBounds() {
+        return MeteredDataSource.BUCKET_BOUNDS_MILLIS.clone();
+    }
+
+    @Nullable
+    private static DataSourceProxy asPool(DataSource dataSource) {
+        return dataSource instanceof DataSourceProxy ? (DataSourceProxy) dataSource : null;
+    }
+
+    // -1 for not a tomcat-jdbc pool
+    private static int count(@Nullable DataSourceProxy pool, ToIntFunction<DataSourceProxy> counter) {
+        return pool == null ? -1 : counter.applyAsInt(pool);
+    }
+}
@@ -0,0 +1,119 @@
+package ru.javawebinar.topjava.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import ru.javawebinar.topjava.to.HibernateStatsTo;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Hibernate {@link Statistics} of jpa/datajpa profiles for REST and JMX (<code>ru.javawebinar.topjava:name=hibernateStats</code>).
+ * Initially enabled by <code>hibernate.generate_statistics</code>, can be switched at runtime;
+ * {@link #reset()} starts a new measurement window.
+ */
+@ManagedResource(objectName = "ru.javawebinar.topjava:name=hibernateStats", description = "Hibernate statistics")
+public class HibernateStatsService {
+
+    private final Statistics statistics;
+
+    public HibernateStatsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public HibernateStatsTo getStats() {
+        List<HibernateStatsTo.QueryStatsTo> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics qs = statistics.getQueryStatistics(query);
+            queries.add(new HibernateStatsTo.QueryStatsTo(query, qs.getExecutionCount(), qs.getExecutionRowCount(),
+                    qs.getExecutionAvgTimeAsDouble(), qs.getExecutionMaxTime(), qs.getCacheHitCount(), qs.getCacheMissCount()));
+        }
+        queries.sort(Comparator.comparingLong(HibernateStatsTo.QueryStatsTo::getMaxTime).reversed());
+
+        List<HibernateStatsTo.RegionStatsTo> regions = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics rs = statistics.getCacheRegionStatistics(region);
+            if (rs != null) {
+                regions.add(new HibernateStatsTo.RegionStatsTo(region, rs.getHitCount(), rs.getMissCount(), rs.getPutCount(),
+                        rs.getElementCountInMemory()));
+            }
+        }
+        return new HibernateStatsTo(statistics.isStatisticsEnabled(), Instant.ofEpochMilli(statistics.getStartTime()),
+                statistics.getConnectCount(), statistics.getTransactionCount(), statistics.getPrepareStatementCount(),
+                statistics.getEntityLoadCount(), statistics.getEntityFetchCount(), statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(), statistics.getQueryExecutionMaxTimeQueryString(), queries, regions);
+    }
+
+    @ManagedAttribute(description = "Statistics are collected")
+    public boolean isEnabled() {
+        return statistics.isStatisticsEnabled();
+    }
+
+    @ManagedAttribute
+    public void setEnabled(boolean enabled) {
+        statistics.setStatisticsEnabled(enabled);
+    }
+
+    @ManagedOperation(description = "Reset all counters")
+    public void reset() {
+        statistics.clear();
+    }
+
+    @ManagedAttribute(description = "JDBC connections obtained by sessions")
+    public long getConnectCount() {
+        return statistics.getConnectCount();
+    }
+
+    @ManagedAttribute
+    public long getPrepareStatementCount() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    @ManagedAttribute
+    public long getEntityLoadCount() {
+        return statistics.getEntityLoadCount();
+    }
+
+    @ManagedAttribute
+    public long getQueryExecutionCount() {
+        return statistics.getQueryExecutionCount();
+    }
+
+    @ManagedAttribute(description = "ms")
+    public long getQueryExecutionMaxTime() {
+        return statistics.getQueryExecutionMaxTime();
+    }
+
+    @ManagedAttribute
+    public String getQueryExecutionMaxTimeQuery() {
+        return statistics.getQueryExecutionMaxTimeQueryString();
+    }
+
+    @ManagedAttribute
+    public long getSecondLevelCacheHitCount() {
+        return statistics.getSecondLevelCacheHitCount();
+    }
+
+    @ManagedAttribute
+    public long getSecondLevelCacheMissCount() {
+        return statistics.getSecondLevelCacheMissCount();
+    }
+
+    @ManagedAttribute
+    public long getQueryCacheHitCount() {
+        return statistics.getQueryCacheHitCount();
+    }
+
+    @ManagedAttribute
+    public long getQueryCacheMissCount() {
+        return statistics.getQueryCacheMissCount();
+    }
+}
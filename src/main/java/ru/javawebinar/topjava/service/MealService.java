@@ -1,54 +1,278 @@
 package ru.javawebinar.topjava.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.repository.MealRepository;
+import ru.javawebinar.topjava.to.BatchResultTo;
+import ru.javawebinar.topjava.to.ImportResultTo;
+import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.to.PageTo;
+import ru.javawebinar.topjava.util.CursorUtil;
 
+import javax.validation.ConstraintViolation;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
 
+import static ru.javawebinar.topjava.util.DataSourceRouting.forUser;
+import static ru.javawebinar.topjava.util.DataSourceRouting.onPrimary;
 import static ru.javawebinar.topjava.util.DateTimeUtil.atStartOfDayOrMin;
 import static ru.javawebinar.topjava.util.DateTimeUtil.atStartOfNextDayOrMax;
 import static ru.javawebinar.topjava.util.ValidationUtil.checkNotFoundWithId;
+import static ru.javawebinar.topjava.util.ValidationUtil.getViolations;
 
 @Service
 public class MealService {
+    public static final int MAX_PAGE_LIMIT = 1000;
+    public static final int IMPORT_CHUNK_SIZE = 1000;
+    private static final int MAX_IMPORT_ERRORS = 100;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final MealRepository repository;
+    private final MealToCache mealToCache;
 
-    public MealService(MealRepository repository) {
+    public MealService(MealRepository repository, MealToCache mealToCache) {
         this.repository = repository;
+        this.mealToCache = mealToCache;
     }
 
     public Meal get(int id, int userId) {
-        return checkNotFoundWithId(repository.get(id, userId), id);
+        return checkNotFoundWithId(forUser(userId, () -> repository.get(id, userId)), id);
     }
 
     public void delete(int id, int userId) {
-        checkNotFoundWithId(repository.delete(id, userId), id);
+        mealToCache.startWrite(userId);
+        try {
+            forUser(userId, () -> checkNotFoundWithId(repository.delete(id, userId), id));
+            mealToCache.remove(userId, id);
+        } finally {
+            mealToCache.finishWrite(userId);
+        }
     }
 
     public List<Meal> getBetweenInclusive(@Nullable LocalDate startDate, @Nullable LocalDate endDate, int userId) {
-        return repository.getBetweenHalfOpen(atStartOfDayOrMin(startDate), atStartOfNextDayOrMax(endDate), userId);
+        return forUser(userId, () ->
+                repository.getBetweenHalfOpen(atStartOfDayOrMin(startDate), atStartOfNextDayOrMax(endDate), userId));
+    }
+
+    public List<MealTo> getFilteredTos(@Nullable LocalDate startDate, @Nullable LocalTime startTime,
+                                       @Nullable LocalDate endDate, @Nullable LocalTime endTime, int caloriesPerDay, int userId) {
+        return forUser(userId, () -> repository.getFilteredTos(atStartOfDayOrMin(startDate), atStartOfNextDayOrMax(endDate),
+                startTime, endTime, caloriesPerDay, userId));
+    }
+
+    /**
+     * Page of getFilteredTos, starting after the item of <code>cursor</code> (null for the first page)
+     */
+    public PageTo<MealTo> getFilteredTosPage(@Nullable LocalDate startDate, @Nullable LocalTime startTime,
+                                             @Nullable LocalDate endDate, @Nullable LocalTime endTime,
+                                             @Nullable String cursor, int limit, int caloriesPerDay, int userId) {
+        Assert.isTrue(limit > 0 && limit <= MAX_PAGE_LIMIT, "limit must be between 1 and " + MAX_PAGE_LIMIT);
+        // one more item tells whether the next page exists
+        List<MealTo> tos = forUser(userId, () -> repository.getFilteredTosPage(atStartOfDayOrMin(startDate),
+                atStartOfNextDayOrMax(endDate), startTime, endTime, CursorUtil.decodeDateTime(cursor), limit + 1, caloriesPerDay, userId));
+        return toPage(tos, limit, MealTo::getDateTime);
+    }
+
+    /**
+     * Page of getBetweenInclusive, starting after the meal of <code>cursor</code> (null for the first page)
+     */
+    public PageTo<Meal> getBetweenInclusivePage(@Nullable LocalDate startDate, @Nullable LocalDate endDate,
+                                                @Nullable String cursor, int limit, int userId) {
+        Assert.isTrue(limit > 0 && limit <= MAX_PAGE_LIMIT, "limit must be between 1 and " + MAX_PAGE_LIMIT);
+        LocalDateTime endDateTime = atStartOfNextDayOrMax(endDate);
+        LocalDateTime before = CursorUtil.decodeDateTime(cursor);
+        List<Meal> meals = forUser(userId, () -> repository.getBetweenHalfOpen(atStartOfDayOrMin(startDate),
+                before != null && before.isBefore(endDateTime) ? before : endDateTime, limit + 1, userId));
+        return toPage(meals, limit, Meal::getDateTime);
+    }
+
+    /**
+     * ORDERED userId, dateTime desc, all users for null userId.
+     * Memory doesn't depend on the number of meals: consumer accepts (mealTo, userId) while they are read from DB
+     */
+    public void export(@Nullable Integer userId, ObjIntConsumer<MealTo> consumer) {
+        forUser(userId, () -> repository.exportTos(userId, consumer));
     }
 
     public List<Meal> getAll(int userId) {
-        return repository.getAll(userId);
+        return forUser(userId, () -> repository.getAll(userId));
+    }
+
+    // ORDERED dateTime desc, unmodifiable
+    public List<MealTo> getAllTos(int userId, int caloriesPerDay) {
+        return mealToCache.get(userId, caloriesPerDay, () -> onPrimary(() -> repository.getAllForTos(userId)));
     }
 
     public void update(Meal meal, int userId) {
         Assert.notNull(meal, "meal must not be null");
-        checkNotFoundWithId(repository.save(meal, userId), meal.id());
+        mealToCache.startWrite(userId);
+        try {
+            checkNotFoundWithId(forUser(userId, () -> repository.save(meal, userId)), meal.id());
+            mealToCache.update(userId, meal);
+        } finally {
+            mealToCache.finishWrite(userId);
+        }
     }
 
     public Meal create(Meal meal, int userId) {
         Assert.notNull(meal, "meal must not be null");
-        return repository.save(meal, userId);
+        mealToCache.startWrite(userId);
+        try {
+            Meal created = forUser(userId, () -> repository.save(meal, userId));
+            mealToCache.add(userId, created);
+            return created;
+        } finally {
+            mealToCache.finishWrite(userId);
+        }
+    }
+
+    /**
+     * New meals with validation errors, with dateTime repeated in the batch or already present in DB are skipped and reported by row,
+     * others are saved in one batch, in the same transaction as the check of DB
+     */
+    public BatchResultTo<Meal> createAll(List<Meal> meals, int userId) {
+        Assert.notNull(meals, "meals must not be null");
+        String[] rowErrors = new String[meals.size()];
+        List<Meal> valid = new ArrayList<>(meals.size());
+        Set<LocalDateTime> dateTimes = new HashSet<>();
+        for (int row = 0; row < meals.size(); row++) {
+            Meal meal = meals.get(row);
+            rowErrors[row] = getInvalidError(meal);
+            if (rowErrors[row] == null && !dateTimes.add(meal.getDateTime())) {
+                rowErrors[row] = "dateTime " + meal.getDateTime() + " is repeated in the batch";
+            }
+            if (rowErrors[row] == null) {
+                valid.add(meal);
+            }
+        }
+        Set<LocalDateTime> existing = valid.isEmpty() ? Set.of() :
+                forUser(userId, () -> repository.saveAllAbsent(valid, userId));
+        mealToCache.evict(userId);
+        List<Meal> created = new ArrayList<>(valid.size());
+        List<BatchResultTo.RowError> errors = new ArrayList<>();
+        for (int row = 0; row < meals.size(); row++) {
+            Meal meal = meals.get(row);
+            if (rowErrors[row] == null && existing.contains(meal.getDateTime())) {
+                rowErrors[row] = "dateTime " + meal.getDateTime() + " already exists";
+            }
+            if (rowErrors[row] == null) {
+                created.add(meal);
+            } else {
+                errors.add(new BatchResultTo.RowError(row, rowErrors[row]));
+            }
+        }
+        return new BatchResultTo<>(created, errors);
+    }
+
+    /**
+     * Meals are read one by one, validated and saved by chunks of {@link #IMPORT_CHUNK_SIZE}, every chunk is committed separately:
+     * memory doesn't depend on the upload size, saved chunks are kept when the import fails.
+     * Meals with dateTime already present in DB or repeated in the upload are counted as duplicates.
+     */
+    public ImportResultTo importMeals(Iterator<Meal> meals, int userId) {
+        Assert.notNull(meals, "meals must not be null");
+        List<Meal> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        List<BatchResultTo.RowError> errors = new ArrayList<>();
+        int rows = 0;
+        int inserted = 0;
+        int invalid = 0;
+        long start = System.nanoTime();
+        while (meals.hasNext()) {
+            Meal meal = meals.next();
+            String error = getInvalidError(meal);
+            if (error == null) {
+                chunk.add(meal);
+            } else {
+                invalid++;
+                if (errors.size() < MAX_IMPORT_ERRORS) {
+                    errors.add(new BatchResultTo.RowError(rows, error));
+                }
+            }
+            rows++;
+            if (chunk.size() == IMPORT_CHUNK_SIZE || !meals.hasNext()) {
+                inserted += importChunk(chunk, userId);
+                chunk.clear();
+                long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+                log.info("import for user {}: {} rows read, {} inserted, {} rows/s", userId, rows, inserted, rows * 1000L / millis);
+            }
+        }
+        return new ImportResultTo(inserted, rows - inserted - invalid, invalid, errors);
     }
 
     public Meal getWithUser(int id, int userId) {
-        return checkNotFoundWithId(repository.getWithUser(id, userId), id);
+        return checkNotFoundWithId(forUser(userId, () -> repository.getWithUser(id, userId)), id);
+    }
+
+    /**
+     * Meals of all users before date (exclusive): memory doesn't depend on the number of deleted meals
+     */
+    public int purge(LocalDate before) {
+        Assert.notNull(before, "before must not be null");
+        int deleted = forUser(null, () -> repository.deleteBefore(before));
+        mealToCache.clear();
+        return deleted;
+    }
+
+    public int rebuildDailyTotals() {
+        return forUser(null, repository::rebuildDailyTotals);
+    }
+
+    public int checkDailyTotals() {
+        return repository.checkDailyTotals();
+    }
+
+    // number of saved meals, others are duplicates
+    private int importChunk(List<Meal> chunk, int userId) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        Set<LocalDateTime> dateTimes = new HashSet<>();
+        List<Meal> unique = chunk.stream()
+                .filter(meal -> dateTimes.add(meal.getDateTime()))
+                .collect(Collectors.toList());
+        // dateTimes of the chunk only: cost and memory don't depend on the meals already in DB
+        int saved = unique.size() - forUser(userId, () -> repository.saveAllAbsent(unique, userId)).size();
+        if (saved > 0) {
+            mealToCache.evict(userId);
+        }
+        return saved;
+    }
+
+    @Nullable
+    private static String getInvalidError(@Nullable Meal meal) {
+        if (meal == null) {
+            return "meal must not be null";
+        }
+        if (!meal.isNew()) {
+            return "meal must be new (id=null)";
+        }
+        Set<ConstraintViolation<Meal>> violations = getViolations(meal);
+        return violations.isEmpty() ? null : violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    // items: limit + 1 at most, the extra item is not returned and only sets the cursor of the next page
+    private static <T> PageTo<T> toPage(List<T> items, int limit, Function<T, LocalDateTime> dateTime) {
+        if (items.size() <= limit) {
+            return new PageTo<>(items, null);
+        }
+        List<T> content = items.subList(0, limit);
+        return new PageTo<>(content, CursorUtil.encode(dateTime.apply(content.get(limit - 1))));
     }
-}
\ No newline at end of file
+}
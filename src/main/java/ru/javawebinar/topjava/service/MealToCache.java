@@ -0,0 +1,382 @@
+package ru.javawebinar.topjava.service;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.util.MealsUtil;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-JVM cache of user's meals with excess: daily calories sums and ready {@link MealTo} list ORDERED dateTime desc.
+ * <p>
+ * {@link MealService} writes patch only the affected day of the cached user: meals are kept by day,
+ * the whole list is flattened on the next read outside the cache lock. Changed <code>caloriesPerDay</code> re-flags the days crossing the limit.
+ * Memory is bounded by the total number of cached meals (least recently used users are evicted first),
+ * users idle longer than timeout are evicted too.
+ * Writes inside transaction evict the user on rollback.
+ * Patches of DB writes of the same user overlapping in time (see {@link #startWrite}) could be applied not in commit order,
+ * so they evict the user instead.
+ * <p>
+ * Hits and misses are exposed by JMX (<code>ru.javawebinar.topjava:name=mealToCache</code>).
+ */
+@Component
+@ManagedResource(objectName = "ru.javawebinar.topjava:name=mealToCache", description = "MealTo cache")
+public class MealToCache {
+    private static final int MAX_MEALS = Integer.getInteger("topjava.mealToCache.maxMeals", 1_000_000);
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(Long.getLong("topjava.mealToCache.idleMinutes", 30));
+
+    private final int maxMeals;
+    private final long idleNanos;
+    private final LongSupplier nanoClock;
+
+    // access ordered: least recently used user first
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int cachedMeals;
+    // users with DB writes in progress
+    private final Map<Integer, Writes> inFlight = new HashMap<>();
+
+    // any write, guards loaded list against concurrent patch of not yet cached user
+    private long writes;
+    private long hits;
+    private long misses;
+
+    public MealToCache() {
+        this(MAX_MEALS, IDLE_TIMEOUT, System::nanoTime);
+    }
+
+    MealToCache(int maxMeals, Duration idleTimeout, LongSupplier nanoClock) {
+        this.maxMeals = maxMeals;
+        this.idleNanos = idleTimeout.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @param loader user's meals ORDERED dateTime desc, called on miss outside the cache lock
+     * @return unmodifiable list
+     */
+    public List<MealTo> get(int userId, int caloriesPerDay, Supplier<List<Meal>> loader) {
+        long version;
+        Entry hit;
+        List<Day> days;
+        synchronized (this) {
+            long now = nanoClock.getAsLong();
+            evictIdle(now);
+            hit = entries.get(userId);
+            if (hit != null) {
+                hits++;
+                hit.lastAccess = now;
+                hit.reflag(caloriesPerDay);
+                if (hit.tos != null) {
+                    return hit.tos;
+                }
+                days = new ArrayList<>(hit.days.values());
+                version = hit.changes;
+            } else {
+                misses++;
+                days = null;
+                version = writes;
+            }
+        }
+        if (hit != null) {
+            List<MealTo> tos = flatten(days, hit.size);
+            synchronized (this) {
+                if (hit.changes == version) {
+                    hit.tos = tos;
+                }
+            }
+            return tos;
+        }
+        Entry entry = new Entry(loader.get(), caloriesPerDay);
+        synchronized (this) {
+            if (version == writes && entry.size <= maxMeals) {
+                entry.lastAccess = nanoClock.getAsLong();
+                put(userId, entry);
+            }
+        }
+        return entry.tos;
+    }
+
+    /**
+     * Before the DB write of the user's meals, must be followed by {@link #finishWrite} in finally;
+     * the patch of the write is called between them
+     */
+    public synchronized void startWrite(int userId) {
+        Writes writes = inFlight.computeIfAbsent(userId, id -> new Writes());
+        if (writes.count++ > 0) {
+            writes.overlapped = true;
+        }
+    }
+
+    public synchronized void finishWrite(int userId) {
+        Writes writes = inFlight.get(userId);
+        if (writes != null && --writes.count == 0) {
+            inFlight.remove(userId);
+        }
+    }
+
+    public synchronized void add(int userId, Meal meal) {
+        Entry entry = beforeWrite(userId);
+        if (entry != null) {
+            entry.add(meal);
+            cachedMeals++;
+            evictOverflow();
+        }
+    }
+
+    public synchronized void update(int userId, Meal meal) {
+        Entry entry = beforeWrite(userId);
+        if (entry != null) {
+            if (entry.remove(meal.id())) {
+                entry.add(meal);
+            } else {
+                evict(userId);
+            }
+        }
+    }
+
+    public synchronized void remove(int userId, int id) {
+        Entry entry = beforeWrite(userId);
+        if (entry != null && entry.remove(id)) {
+            cachedMeals--;
+        }
+    }
+
+    public synchronized void updateCaloriesPerDay(int userId, int caloriesPerDay) {
+        Entry entry = beforeWrite(userId);
+        if (entry != null) {
+            entry.reflag(caloriesPerDay);
+        }
+    }
+
+    public synchronized void evict(int userId) {
+        writes++;
+        Entry entry = entries.remove(userId);
+        if (entry != null) {
+            cachedMeals -= entry.size;
+        }
+    }
+
+    public synchronized void clear() {
+        writes++;
+        entries.clear();
+        cachedMeals = 0;
+    }
+
+    @ManagedOperation(description = "Reset hit/miss counters")
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+
+    @ManagedAttribute
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @ManagedAttribute
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @ManagedAttribute(description = "hits / (hits + misses), 0 without reads")
+    public synchronized double getHitRatio() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @ManagedAttribute
+    public synchronized int getCachedUsers() {
+        return entries.size();
+    }
+
+    @ManagedAttribute
+    public synchronized int getCachedMeals() {
+        return cachedMeals;
+    }
+
+    private Entry beforeWrite(int userId) {
+        writes++;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        evict(userId);
+                    }
+                }
+            });
+        }
+        Writes writes = inFlight.get(userId);
+        if (writes != null && writes.overlapped) {
+            evict(userId);
+            return null;
+        }
+        return entries.get(userId);
+    }
+
+    private void put(int userId, Entry entry) {
+        Entry previous = entries.put(userId, entry);
+        cachedMeals += entry.size - (previous == null ? 0 : previous.size);
+        evictOverflow();
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (cachedMeals > maxMeals && iterator.hasNext()) {
+            cachedMeals -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    private void evictIdle(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.lastAccess < idleNanos) {
+                break;
+            }
+            cachedMeals -= entry.size;
+            iterator.remove();
+        }
+    }
+
+    private static class Writes {
+        private int count;
+        // another write of the user started while this one was in progress
+        private boolean overlapped;
+    }
+
+    // dates desc, meals of a day in dateTime desc
+    private static List<MealTo> flatten(Collection<Day> days, int size) {
+        List<MealTo> list = new ArrayList<>(size);
+        days.forEach(day -> list.addAll(day.tos));
+        return Collections.unmodifiableList(list);
+    }
+
+    // immutable: replaced on its change, so snapshots of days are never modified
+    private static class Day {
+        private final int calories;
+        // dateTime desc
+        private final List<MealTo> tos;
+
+        Day(int calories, List<MealTo> tos) {
+            this.calories = calories;
+            this.tos = tos;
+        }
+    }
+
+    private static class Entry {
+        private static final Comparator<MealTo> DATE_TIME_DESC = Comparator.comparing(MealTo::getDateTime).reversed();
+
+        private final NavigableMap<LocalDate, Day> days = new TreeMap<>(Comparator.reverseOrder());
+        // date of every cached meal by id
+        private final Map<Integer, LocalDate> dates = new HashMap<>();
+        private int caloriesPerDay;
+        private int size;
+        // any change of days, guards the list flattened outside the cache lock
+        private long changes;
+        // flattened days, null after a change until the next read
+        private List<MealTo> tos;
+        private long lastAccess;
+
+        // meals ORDERED dateTime desc
+        Entry(List<Meal> meals, int caloriesPerDay) {
+            this.caloriesPerDay = caloriesPerDay;
+            int from = 0;
+            for (int index = 1; index <= meals.size(); index++) {
+                if (index == meals.size() || !meals.get(index).getDate().equals(meals.get(from).getDate())) {
+                    List<Meal> dayMeals = meals.subList(from, index);
+                    LocalDate date = meals.get(from).getDate();
+                    List<MealTo> list = new ArrayList<>(dayMeals.size());
+                    int calories = 0;
+                    for (Meal meal : dayMeals) {
+                        list.add(MealsUtil.createTo(meal, false));
+                        dates.put(meal.id(), date);
+                        calories += meal.getCalories();
+                    }
+                    putDay(date, calories, list);
+                    from = index;
+                }
+            }
+            size = meals.size();
+            tos = flatten(days.values(), size);
+        }
+
+        void add(Meal meal) {
+            LocalDate date = meal.getDate();
+            Day day = days.get(date);
+            List<MealTo> list = new ArrayList<>(day == null ? 1 : day.tos.size() + 1);
+            int calories = meal.getCalories();
+            if (day != null) {
+                list.addAll(day.tos);
+                calories += day.calories;
+            }
+            MealTo to = MealsUtil.createTo(meal, false);
+            int index = Collections.binarySearch(list, to, DATE_TIME_DESC);
+            list.add(index < 0 ? -index - 1 : index, to);
+            putDay(date, calories, list);
+            dates.put(meal.id(), date);
+            size++;
+        }
+
+        // false if meal is not cached
+        boolean remove(int id) {
+            LocalDate date = dates.remove(id);
+            if (date == null) {
+                return false;
+            }
+            Day day = days.get(date);
+            List<MealTo> list = new ArrayList<>(day.tos);
+            int index = 0;
+            while (list.get(index).id() != id) {
+                index++;
+            }
+            MealTo removed = list.remove(index);
+            if (list.isEmpty()) {
+                days.remove(date);
+                changed();
+            } else {
+                putDay(date, day.calories - removed.getCalories(), list);
+            }
+            size--;
+            return true;
+        }
+
+        // only days between the old and new limit change excess
+        void reflag(int caloriesPerDay) {
+            int previous = this.caloriesPerDay;
+            if (previous != caloriesPerDay) {
+                this.caloriesPerDay = caloriesPerDay;
+                List<Map.Entry<LocalDate, Day>> crossed = days.entrySet().stream()
+                        .filter(e -> (e.getValue().calories > previous) != (e.getValue().calories > caloriesPerDay))
+                        .toList();
+                crossed.forEach(e -> putDay(e.getKey(), e.getValue().calories, new ArrayList<>(e.getValue().tos)));
+            }
+        }
+
+        private void putDay(LocalDate date, int calories, List<MealTo> list) {
+            boolean excess = calories > caloriesPerDay;
+            list.replaceAll(to -> withExcess(to, excess));
+            days.put(date, new Day(calories, Collections.unmodifiableList(list)));
+            changed();
+        }
+
+        private void changed() {
+            changes++;
+            tos = null;
+        }
+
+        private static MealTo withExcess(MealTo to, boolean excess) {
+            return to.isExcess() == excess ? to : new MealTo(to.getId(), to.getDateTime(), to.getDescription(), to.getCalories(), excess);
+        }
+    }
+}
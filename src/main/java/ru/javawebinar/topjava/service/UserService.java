@@ -1,86 +1,138 @@
 package ru.javawebinar.topjava.service;
 
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.cache.support.NoOpCacheManager;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 import ru.javawebinar.topjava.AuthorizedUser;
 import ru.javawebinar.topjava.model.User;
 import ru.javawebinar.topjava.repository.UserRepository;
 import ru.javawebinar.topjava.to.UserTo;
-import ru.javawebinar.topjava.util.UsersUtil;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
 
+import static ru.javawebinar.topjava.util.DataSourceRouting.forUser;
+import static ru.javawebinar.topjava.util.DataSourceRouting.onPrimary;
 import static ru.javawebinar.topjava.util.ValidationUtil.checkNotFound;
 import static ru.javawebinar.topjava.util.ValidationUtil.checkNotFoundWithId;
 
+/**
+ * Caches of ehcache.xml: {@link #USER_CACHE} by id is evicted by id on the user change,
+ * {@link #USER_BY_EMAIL_CACHE} keeps only ids and is checked against {@link #USER_CACHE},
+ * {@link #USERS_CACHE} list is patched by the changed user instead of reloading all users.
+ * Both are changed after commit of the user change (see {@link #changed}).
+ * Cached users are read from primary with replication (see {@link ru.javawebinar.topjava.util.DataSourceRouting}).
+ */
 @Service("userService")
 @Scope(proxyMode = ScopedProxyMode.TARGET_CLASS)
 public class UserService implements UserDetailsService {
+    public static final String USERS_CACHE = "users";
+    public static final String USER_CACHE = "user";
+    public static final String USER_BY_EMAIL_CACHE = "userByEmail";
 
-    private final UserRepository repository;
+    // order of UserRepository.getAll
+    private static final Comparator<User> NAME_EMAIL = Comparator.comparing(User::getName).thenComparing(User::getEmail);
 
-    public UserService(UserRepository repository) {
+    private final UserRepository repository;
+    private final MealToCache mealToCache;
+    private final AuthorizedUserCache authorizedUserCache;
+    private final Cache usersCache;
+    private final Cache userCache;
+    private final Cache userByEmailCache;
+
+    // no CacheManager for in-memory repositories and in tests
+    public UserService(UserRepository repository, MealToCache mealToCache, AuthorizedUserCache authorizedUserCache,
+                       ObjectProvider<CacheManager> cacheManager) {
         this.repository = repository;
+        this.mealToCache = mealToCache;
+        this.authorizedUserCache = authorizedUserCache;
+        CacheManager manager = cacheManager.getIfAvailable(NoOpCacheManager::new);
+        this.usersCache = Objects.requireNonNull(manager.getCache(USERS_CACHE), USERS_CACHE);
+        this.userCache = Objects.requireNonNull(manager.getCache(USER_CACHE), USER_CACHE);
+        this.userByEmailCache = Objects.requireNonNull(manager.getCache(USER_BY_EMAIL_CACHE), USER_BY_EMAIL_CACHE);
     }
 
-    @CacheEvict(value = "users", allEntries = true)
     public User create(User user) {
         Assert.notNull(user, "user must not be null");
-        return repository.save(user);
+        User created = repository.save(user);
+        changed(created.id(), () -> created);
+        afterCommit(() -> userCache.put(created.id(), created));
+        return created;
     }
 
-    @CacheEvict(value = "users", allEntries = true)
     public void delete(int id) {
-        checkNotFoundWithId(repository.delete(id), id);
+        forUser(id, () -> checkNotFoundWithId(repository.delete(id), id));
+        mealToCache.evict(id);
+        authorizedUserCache.evict(id);
+        changed(id, () -> null);
     }
 
+    @Cacheable(USER_CACHE)
     public User get(int id) {
-        return checkNotFoundWithId(repository.get(id), id);
+        return checkNotFoundWithId(onPrimary(() -> repository.get(id)), id);
     }
 
     public User getByEmail(String email) {
         Assert.notNull(email, "email must not be null");
-        return checkNotFound(repository.getByEmail(email), "email=" + email);
+        Integer id = userByEmailCache.get(email, Integer.class);
+        User user = id == null ? null : userCache.get(id, User.class);
+        if (user == null || !user.getEmail().equals(email)) {
+            user = checkNotFound(onPrimary(() -> repository.getByEmail(email)), "email=" + email);
+            userCache.put(user.id(), user);
+            userByEmailCache.put(email, user.id());
+        }
+        return user;
     }
 
-    @Cacheable("users")
+    @Cacheable(USERS_CACHE)
     public List<User> getAll() {
-        return repository.getAll();
+        return onPrimary(repository::getAll);
     }
 
-    @CacheEvict(value = "users", allEntries = true)
     public void update(User user) {
         Assert.notNull(user, "user must not be null");
 //      checkNotFoundWithId : check works only for JDBC, disabled
-        repository.save(user);
+        forUser(user.id(), () -> repository.save(user));
+        mealToCache.updateCaloriesPerDay(user.id(), user.getCaloriesPerDay());
+        authorizedUserCache.evict(user.id());
+        changed(user.id(), () -> repository.get(user.id()));
     }
 
-    @CacheEvict(value = "users", allEntries = true)
     @Transactional
     public void update(UserTo userTo) {
-        User user = get(userTo.id());
-        User updatedUser = UsersUtil.updateFromTo(user, userTo);
-        repository.save(updatedUser);   // !! need only for JDBC implementation
+        forUser(userTo.id(), () -> checkNotFoundWithId(repository.update(userTo), userTo.id()));
+        mealToCache.updateCaloriesPerDay(userTo.id(), userTo.getCaloriesPerDay());
+        authorizedUserCache.evict(userTo.id());
+        changed(userTo.id(), () -> repository.get(userTo.id()));
     }
 
-    @CacheEvict(value = "users", allEntries = true)
     @Transactional
     public void enable(int id, boolean enabled) {
-        User user = get(id);
-        user.setEnabled(enabled);
-        repository.save(user);  // !! need only for JDBC implementation
+        forUser(id, () -> checkNotFoundWithId(repository.enable(id, enabled), id));
+        authorizedUserCache.evict(id);
+        changed(id, () -> repository.get(id));
     }
 
     @Override
     public AuthorizedUser loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = repository.getByEmail(email.toLowerCase());
+        // AuthorizedUserCache keeps the result
+        User user = onPrimary(() -> repository.getByEmail(email.toLowerCase()));
         if (user == null) {
             throw new UsernameNotFoundException("User " + email + " is not found");
         }
@@ -88,6 +140,52 @@ public class UserService implements UserDetailsService {
     }
 
     public User getWithMeals(int id) {
-        return checkNotFoundWithId(repository.getWithMeals(id), id);
+        return checkNotFoundWithId(forUser(id, () -> repository.getWithMeals(id)), id);
+    }
+
+    /**
+     * Evicts the user and patches the list after commit: rolled back changes are not cached
+     * and the old user cached by a concurrent read before commit is evicted.
+     * The changed user (null if deleted) is loaded inside the transaction only if all users are cached, otherwise the list is evicted.
+     */
+    private void changed(int id, Supplier<User> changed) {
+        boolean allCached = usersCache.get(SimpleKey.EMPTY) != null;
+        User user = allCached ? onPrimary(changed) : null;
+        afterCommit(() -> {
+            userCache.evict(id);
+            if (allCached) {
+                patchAll(id, user);
+            } else {
+                usersCache.evict(SimpleKey.EMPTY);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void patchAll(int id, @Nullable User changed) {
+        List<User> all = usersCache.get(SimpleKey.EMPTY, List.class);
+        if (all != null) {
+            List<User> patched = new ArrayList<>(all.size() + 1);
+            all.stream().filter(u -> u.id() != id).forEach(patched::add);
+            if (changed != null) {
+                patched.add(changed);
+                patched.sort(NAME_EMAIL);
+            }
+            usersCache.put(SimpleKey.EMPTY, patched);
+        }
+    }
+
+    // immediately without transaction
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
-}
\ No newline at end of file
+}
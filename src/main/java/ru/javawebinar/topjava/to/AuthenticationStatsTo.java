@@ -0,0 +1,67 @@
+package ru.javawebinar.topjava.to;
+
+import java.beans.ConstructorProperties;
+import java.time.Instant;
+
+/**
+ * REST authentication cache hits and misses since <code>startTime</code> (start or the last reset), ttl in s.
+ */
+public class AuthenticationStatsTo {
+    private final Instant startTime;
+    private final long hits;
+    private final long misses;
+    private final double hitRatio;
+    private final int cachedUsers;
+    private final int maxUsers;
+    private final long ttl;
+
+    @ConstructorProperties({"startTime", "hits", "misses", "hitRatio", "cachedUsers", "maxUsers", "ttl"})
+    public AuthenticationStatsTo(Instant startTime, long hits, long misses, double hitRatio, int cachedUsers, int maxUsers, long ttl) {
+        this.startTime = startTime;
+        this.hits = hits;
+        this.misses = misses;
+        this.hitRatio = hitRatio;
+        this.cachedUsers = cachedUsers;
+        this.maxUsers = maxUsers;
+        this.ttl = ttl;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    // authentications by UserService, failed included
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    public int getCachedUsers() {
+        return cachedUsers;
+    }
+
+    public int getMaxUsers() {
+        return maxUsers;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticationStatsTo{" +
+                "startTime=" + startTime +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", cachedUsers=" + cachedUsers +
+                '}';
+    }
+}
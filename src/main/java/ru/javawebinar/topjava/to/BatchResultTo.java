@@ -0,0 +1,72 @@
+package ru.javawebinar.topjava.to;
+
+import java.beans.ConstructorProperties;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Result of batch creation: created entities and rejected rows, row is the index in the request.
+ */
+public class BatchResultTo<T> {
+    private final List<T> created;
+    private final List<RowError> errors;
+
+    @ConstructorProperties({"created", "errors"})
+    public BatchResultTo(List<T> created, List<RowError> errors) {
+        this.created = created;
+        this.errors = errors;
+    }
+
+    public List<T> getCreated() {
+        return created;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResultTo{" +
+                "created=" + created.size() +
+                ", errors=" + errors +
+                '}';
+    }
+
+    public static class RowError {
+        private final int row;
+        private final String message;
+
+        @ConstructorProperties({"row", "message"})
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RowError that = (RowError) o;
+            return row == that.row && Objects.equals(message, that.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(row, message);
+        }
+
+        @Override
+        public String toString() {
+            return row + ": " + message;
+        }
+    }
+}
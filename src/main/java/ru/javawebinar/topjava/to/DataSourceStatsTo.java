@@ -0,0 +1,177 @@
+package ru.javawebinar.topjava.to;
+
+import java.beans.ConstructorProperties;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Connection pool state and connection acquisitions since <code>startTime</code> (start or the last reset), times in ms.
+ * Pool counters are of the primary pool, -1 if it is not a tomcat-jdbc pool (JNDI DataSource of the tomcat profile).
+ * Replica pools of the replication profile are in <code>replicas</code>, acquisitions are metered for all pools together.
+ */
+public class DataSourceStatsTo {
+    private final Instant startTime;
+    private final int maxActive;
+    private final int size;
+    private final int active;
+    private final int idle;
+    private final int pending;
+    private final long acquisitionCount;
+    private final long acquisitionFailures;
+    private final double acquisitionAvgTime;
+    private final double acquisitionMaxTime;
+    private final List<BucketTo> histogram;
+    private final List<PoolTo> replicas;
+
+    @ConstructorProperties({"startTime", "maxActive", "size", "active", "idle", "pending", "acquisitionCount",
+            "acquisitionFailures", "acquisitionAvgTime", "acquisitionMaxTime", "histogram", "replicas"})
+    public DataSourceStatsTo(Instant startTime, int maxActive, int size, int active, int idle, int pending, long acquisitionCount,
+                             long acquisitionFailures, double acquisitionAvgTime, double acquisitionMaxTime, List<BucketTo> histogram,
+                             List<PoolTo> replicas) {
+        this.startTime = startTime;
+        this.maxActive = maxActive;
+        this.size = size;
+        this.active = active;
+        this.idle = idle;
+        this.pending = pending;
+        this.acquisitionCount = acquisitionCount;
+        this.acquisitionFailures = acquisitionFailures;
+        this.acquisitionAvgTime = acquisitionAvgTime;
+        this.acquisitionMaxTime = acquisitionMaxTime;
+        this.histogram = histogram;
+        this.replicas = replicas;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    // open connections: active + idle
+    public int getSize() {
+        return size;
+    }
+
+    // borrowed connections, saturated when equal to maxActive
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    // threads waiting for a connection
+    public int getPending() {
+        return pending;
+    }
+
+    public long getAcquisitionCount() {
+        return acquisitionCount;
+    }
+
+    public long getAcquisitionFailures() {
+        return acquisitionFailures;
+    }
+
+    public double getAcquisitionAvgTime() {
+        return acquisitionAvgTime;
+    }
+
+    public double getAcquisitionMaxTime() {
+        return acquisitionMaxTime;
+    }
+
+    // ORDERED upperBound, not cumulative
+    public List<BucketTo> getHistogram() {
+        return histogram;
+    }
+
+    // empty without replication
+    public List<PoolTo> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public String toString() {
+        return "DataSourceStatsTo{" +
+                "startTime=" + startTime +
+                ", active=" + active +
+                ", idle=" + idle +
+                ", pending=" + pending +
+                ", acquisitionCount=" + acquisitionCount +
+                ", acquisitionMaxTime=" + acquisitionMaxTime +
+                ", replicas=" + replicas +
+                '}';
+    }
+
+    // counters of a replica pool, -1 if it is not a tomcat-jdbc pool
+    public static class PoolTo {
+        private final int maxActive;
+        private final int size;
+        private final int active;
+        private final int idle;
+        private final int pending;
+
+        @ConstructorProperties({"maxActive", "size", "active", "idle", "pending"})
+        public PoolTo(int maxActive, int size, int active, int idle, int pending) {
+            this.maxActive = maxActive;
+            this.size = size;
+            this.active = active;
+            this.idle = idle;
+            this.pending = pending;
+        }
+
+        public int getMaxActive() {
+            return maxActive;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolTo{" +
+                    "active=" + active +
+                    ", idle=" + idle +
+                    ", pending=" + pending +
+                    '}';
+        }
+    }
+
+    public static class BucketTo {
+        private final Long upperBound;
+        private final long count;
+
+        @ConstructorProperties({"upperBound", "count"})
+        public BucketTo(Long upperBound, long count) {
+            this.upperBound = upperBound;
+            this.count = count;
+        }
+
+        // inclusive, null for the last unbounded bucket
+        public Long getUpperBound() {
+            return upperBound;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
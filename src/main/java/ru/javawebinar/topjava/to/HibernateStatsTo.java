@@ -0,0 +1,191 @@
+package ru.javawebinar.topjava.to;
+
+import java.beans.ConstructorProperties;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Hibernate statistics since <code>startTime</code> (start or the last reset), times in ms.
+ * Counters stay zero while statistics are disabled.
+ */
+public class HibernateStatsTo {
+    private final boolean enabled;
+    private final Instant startTime;
+    private final long connectCount;
+    private final long transactionCount;
+    private final long prepareStatementCount;
+    private final long entityLoadCount;
+    private final long entityFetchCount;
+    private final long queryExecutionCount;
+    private final long queryExecutionMaxTime;
+    private final String queryExecutionMaxTimeQuery;
+    private final List<QueryStatsTo> queries;
+    private final List<RegionStatsTo> regions;
+
+    @ConstructorProperties({"enabled", "startTime", "connectCount", "transactionCount", "prepareStatementCount", "entityLoadCount",
+            "entityFetchCount", "queryExecutionCount", "queryExecutionMaxTime", "queryExecutionMaxTimeQuery", "queries", "regions"})
+    public HibernateStatsTo(boolean enabled, Instant startTime, long connectCount, long transactionCount, long prepareStatementCount,
+                            long entityLoadCount, long entityFetchCount, long queryExecutionCount, long queryExecutionMaxTime,
+                            String queryExecutionMaxTimeQuery, List<QueryStatsTo> queries, List<RegionStatsTo> regions) {
+        this.enabled = enabled;
+        this.startTime = startTime;
+        this.connectCount = connectCount;
+        this.transactionCount = transactionCount;
+        this.prepareStatementCount = prepareStatementCount;
+        this.entityLoadCount = entityLoadCount;
+        this.entityFetchCount = entityFetchCount;
+        this.queryExecutionCount = queryExecutionCount;
+        this.queryExecutionMaxTime = queryExecutionMaxTime;
+        this.queryExecutionMaxTimeQuery = queryExecutionMaxTimeQuery;
+        this.queries = queries;
+        this.regions = regions;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    // JDBC connections obtained by sessions
+    public long getConnectCount() {
+        return connectCount;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public long getPrepareStatementCount() {
+        return prepareStatementCount;
+    }
+
+    public long getEntityLoadCount() {
+        return entityLoadCount;
+    }
+
+    public long getEntityFetchCount() {
+        return entityFetchCount;
+    }
+
+    public long getQueryExecutionCount() {
+        return queryExecutionCount;
+    }
+
+    public long getQueryExecutionMaxTime() {
+        return queryExecutionMaxTime;
+    }
+
+    public String getQueryExecutionMaxTimeQuery() {
+        return queryExecutionMaxTimeQuery;
+    }
+
+    // ORDERED maxTime desc
+    public List<QueryStatsTo> getQueries() {
+        return queries;
+    }
+
+    public List<RegionStatsTo> getRegions() {
+        return regions;
+    }
+
+    @Override
+    public String toString() {
+        return "HibernateStatsTo{" +
+                "enabled=" + enabled +
+                ", startTime=" + startTime +
+                ", prepareStatementCount=" + prepareStatementCount +
+                ", queryExecutionCount=" + queryExecutionCount +
+                ", queryExecutionMaxTime=" + queryExecutionMaxTime +
+                '}';
+    }
+
+    public static class QueryStatsTo {
+        private final String query;
+        private final long executionCount;
+        private final long rowCount;
+        private final double avgTime;
+        private final long maxTime;
+        private final long cacheHitCount;
+        private final long cacheMissCount;
+
+        @ConstructorProperties({"query", "executionCount", "rowCount", "avgTime", "maxTime", "cacheHitCount", "cacheMissCount"})
+        public QueryStatsTo(String query, long executionCount, long rowCount, double avgTime, long maxTime, long cacheHitCount, long cacheMissCount) {
+            this.query = query;
+            this.executionCount = executionCount;
+            this.rowCount = rowCount;
+            this.avgTime = avgTime;
+            this.maxTime = maxTime;
+            this.cacheHitCount = cacheHitCount;
+            this.cacheMissCount = cacheMissCount;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public long getExecutionCount() {
+            return executionCount;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public double getAvgTime() {
+            return avgTime;
+        }
+
+        public long getMaxTime() {
+            return maxTime;
+        }
+
+        public long getCacheHitCount() {
+            return cacheHitCount;
+        }
+
+        public long getCacheMissCount() {
+            return cacheMissCount;
+        }
+    }
+
+    public static class RegionStatsTo {
+        private final String region;
+        private final long hitCount;
+        private final long missCount;
+        private final long putCount;
+        private final long elementCount;
+
+        @ConstructorProperties({"region", "hitCount", "missCount", "putCount", "elementCount"})
+        public RegionStatsTo(String region, long hitCount, long missCount, long putCount, long elementCount) {
+            this.region = region;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.putCount = putCount;
+            this.elementCount = elementCount;
+        }
+
+        public String getRegion() {
+            return region;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getPutCount() {
+            return putCount;
+        }
+
+        // in memory, -1 if not supported by the cache provider
+        public long getElementCount() {
+            return elementCount;
+        }
+    }
+}
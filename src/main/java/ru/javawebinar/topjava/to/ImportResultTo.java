@@ -0,0 +1,47 @@
+package ru.javawebinar.topjava.to;
+
+import java.beans.ConstructorProperties;
+import java.util.List;
+
+/**
+ * Summary of streaming import: counters of all rows and the first rejected rows, row is the index in the upload.
+ */
+public class ImportResultTo {
+    private final int inserted;
+    private final int duplicates;
+    private final int invalid;
+    private final List<BatchResultTo.RowError> errors;
+
+    @ConstructorProperties({"inserted", "duplicates", "invalid", "errors"})
+    public ImportResultTo(int inserted, int duplicates, int invalid, List<BatchResultTo.RowError> errors) {
+        this.inserted = inserted;
+        this.duplicates = duplicates;
+        this.invalid = invalid;
+        this.errors = errors;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public List<BatchResultTo.RowError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportResultTo{" +
+                "inserted=" + inserted +
+                ", duplicates=" + duplicates +
+                ", invalid=" + invalid +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+package ru.javawebinar.topjava.to;
+
+import org.springframework.lang.Nullable;
+
+import java.beans.ConstructorProperties;
+import java.util.List;
+
+/**
+ * Page of keyset pagination, <code>next</code> is the cursor of the next page, null for the last page
+ */
+public class PageTo<T> {
+    private final List<T> content;
+    @Nullable
+    private final String next;
+
+    @ConstructorProperties({"content", "next"})
+    public PageTo(List<T> content, @Nullable String next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    @Nullable
+    public String getNext() {
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return "PageTo{" +
+                "content=" + content.size() +
+                ", next='" + next + '\'' +
+                '}';
+    }
+}
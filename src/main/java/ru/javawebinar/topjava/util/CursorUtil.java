@@ -0,0 +1,35 @@
+package ru.javawebinar.topjava.util;
+
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque url-safe token of keyset pagination: dateTime of the last item of the page.
+ * (user_id, date_time) is unique, so the next page starts strictly before dateTime without a tie-break.
+ */
+public class CursorUtil {
+    private CursorUtil() {
+    }
+
+    public static String encode(LocalDateTime dateTime) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(dateTime.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nullable
+    public static LocalDateTime decodeDateTime(@Nullable String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            // IllegalArgumentException of Base64 is thrown as is
+            return LocalDateTime.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor, e);
+        }
+    }
+}
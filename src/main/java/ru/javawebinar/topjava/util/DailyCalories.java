@@ -0,0 +1,71 @@
+package ru.javawebinar.topjava.util;
+
+import java.util.Arrays;
+
+/**
+ * Calories sum by epoch day: open-addressing int -> int hash map without boxing.
+ * Not thread-safe, lives inside a single {@link MealsUtil} call.
+ */
+final class DailyCalories {
+    // LocalDate.toEpochDay() of the dates supported by DB never reaches it
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] days;
+    private int[] calories;
+    private int mask;
+    private int size;
+
+    DailyCalories(int expectedDays) {
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(expectedDays, 1) * 2 - 1) << 1));
+    }
+
+    void add(int epochDay, int mealCalories) {
+        int i = index(epochDay);
+        if (days[i] == EMPTY) {
+            days[i] = epochDay;
+            calories[i] = mealCalories;
+            if (++size * 2 > days.length) {
+                rehash();
+            }
+        } else {
+            calories[i] += mealCalories;
+        }
+    }
+
+    // 0 for absent day
+    int get(int epochDay) {
+        int i = index(epochDay);
+        return days[i] == EMPTY ? 0 : calories[i];
+    }
+
+    // slot of the day or the first empty slot of its probe sequence
+    private int index(int epochDay) {
+        int hash = epochDay * 0x9E3779B9;
+        int i = (hash ^ hash >>> 16) & mask;
+        while (days[i] != EMPTY && days[i] != epochDay) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void allocate(int capacity) {
+        days = new int[capacity];
+        Arrays.fill(days, EMPTY);
+        calories = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash() {
+        int[] oldDays = days;
+        int[] oldCalories = calories;
+        allocate(oldDays.length * 2);
+        for (int i = 0; i < oldDays.length; i++) {
+            if (oldDays[i] != EMPTY) {
+                int j = index(oldDays[i]);
+                days[j] = oldDays[i];
+                calories[j] = oldCalories[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.javawebinar.topjava.util;
+
+import org.springframework.lang.Nullable;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound hints of the services for {@link ReadWriteRoutingDataSource} (replication profile), unused without it.
+ * <ul>
+ * <li>{@link #forUser}: the user whose data is read or written. A committed write starts the read-your-writes window
+ * of this user, whoever is authenticated: a change made by admin is seen by the user.</li>
+ * <li>{@link #onPrimary}: reads which results are cached. Cached data of a lagging replica would outlive the window.</li>
+ * </ul>
+ */
+public final class DataSourceRouting {
+    // user hint of writes and reads of all users (purge, export of all users)
+    static final int ALL_USERS = -1;
+
+    private static final ThreadLocal<Integer> USER_ID = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    // null userId for all users
+    public static <T> T forUser(@Nullable Integer userId, Supplier<T> action) {
+        Integer previous = USER_ID.get();
+        USER_ID.set(userId == null ? ALL_USERS : userId);
+        try {
+            return action.get();
+        } finally {
+            restore(USER_ID, previous);
+        }
+    }
+
+    public static void forUser(@Nullable Integer userId, Runnable action) {
+        forUser(userId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static <T> T onPrimary(Supplier<T> read) {
+        Boolean previous = PRIMARY.get();
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            restore(PRIMARY, previous);
+        }
+    }
+
+    // null without hint, ALL_USERS for all users
+    @Nullable
+    static Integer getUserId() {
+        return USER_ID.get();
+    }
+
+    static boolean isPrimary() {
+        return PRIMARY.get() != null;
+    }
+
+    private static <T> void restore(ThreadLocal<T> local, @Nullable T previous) {
+        if (previous == null) {
+            local.remove();
+        } else {
+            local.set(previous);
+        }
+    }
+}
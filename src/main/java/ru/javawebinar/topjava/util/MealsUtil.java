@@ -1,8 +1,10 @@
 package ru.javawebinar.topjava.util;
 
+import org.springframework.lang.Nullable;
 import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.to.MealTo;
 
+import java.io.Serial;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -20,25 +22,94 @@ import static java.util.stream.Collectors.toList;
 
 public class MealsUtil {
 
+    /**
+     * Histories of at least this size, ORDERED dateTime desc, are calculated by {@link #filterByTimeParallel}
+     */
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("topjava.mealsUtil.parallelThreshold", 100_000);
+    private static final int MIN_CHUNK_SIZE = 8_192;
+
     private MealsUtil() {
     }
 
     public static List<MealTo> getTos(Collection<Meal> meals, int caloriesPerDay) {
-        return filterByPredicate(meals, caloriesPerDay, meal -> true);
+        return filterByTime(meals, caloriesPerDay, null, null);
+    }
+
+    public static List<MealTo> getFilteredTos(Collection<Meal> meals, int caloriesPerDay, @Nullable LocalTime startTime, @Nullable LocalTime endTime) {
+        return filterByTime(meals, caloriesPerDay, startTime, endTime);
+    }
+
+    private static List<MealTo> filterByTime(Collection<Meal> meals, int caloriesPerDay, @Nullable LocalTime startTime, @Nullable LocalTime endTime) {
+        if (meals.size() >= PARALLEL_THRESHOLD && meals instanceof List<Meal> list && list instanceof RandomAccess && isOrderedDesc(list)) {
+            return filterByTimeParallel(list, caloriesPerDay, startTime, endTime);
+        }
+        return filterByTimeSequential(meals, caloriesPerDay, startTime, endTime);
+    }
+
+    /**
+     * Two passes without boxing: daily sums are kept in primitive map by epoch day,
+     * time of day is compared as nano of day (same half-open interval as {@link Util#isBetweenHalfOpen}).
+     */
+    static List<MealTo> filterByTimeSequential(Collection<Meal> meals, int caloriesPerDay, @Nullable LocalTime startTime, @Nullable LocalTime endTime) {
+        DailyCalories caloriesSumByDate = new DailyCalories(meals.size() / 4);
+        for (Meal meal : meals) {
+            caloriesSumByDate.add((int) meal.getDateTime().toLocalDate().toEpochDay(), meal.getCalories());
+        }
+
+        long startNanoOfDay = startTime == null ? Long.MIN_VALUE : startTime.toNanoOfDay();
+        long endNanoOfDay = endTime == null ? Long.MAX_VALUE : endTime.toNanoOfDay();
+        List<MealTo> mealsTo = new ArrayList<>(startTime == null && endTime == null ? meals.size() : 16);
+        for (Meal meal : meals) {
+            LocalDateTime dateTime = meal.getDateTime();
+            long nanoOfDay = dateTime.toLocalTime().toNanoOfDay();
+            if (nanoOfDay >= startNanoOfDay && nanoOfDay < endNanoOfDay) {
+                int caloriesSum = caloriesSumByDate.get((int) dateTime.toLocalDate().toEpochDay());
+                mealsTo.add(createTo(meal, caloriesSum > caloriesPerDay));
+            }
+        }
+        return mealsTo;
     }
 
-    public static List<MealTo> getFilteredTos(Collection<Meal> meals, int caloriesPerDay, LocalTime startTime, LocalTime endTime) {
-        return filterByPredicate(meals, caloriesPerDay, meal -> Util.isBetweenHalfOpen(meal.getTime(), startTime, endTime));
+    /**
+     * Meals of a day must be contiguous (ORDERED dateTime): the list is split into chunks of whole days,
+     * which are calculated on the shared {@link ForkJoinPool} and written at the positions of their meals,
+     * so the result keeps the input order.
+     */
+    static List<MealTo> filterByTimeParallel(List<Meal> meals, int caloriesPerDay, @Nullable LocalTime startTime, @Nullable LocalTime endTime) {
+        MealTo[] mealsTo = new MealTo[meals.size()];
+        ForkJoinPool pool = ParallelPoolHolder.POOL;
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, meals.size() / (pool.getParallelism() * 4));
+        pool.invoke(new DaysRangeTask(meals, 0, meals.size(), chunkSize, mealsTo, caloriesPerDay,
+                startTime == null ? Long.MIN_VALUE : startTime.toNanoOfDay(),
+                endTime == null ? Long.MAX_VALUE : endTime.toNanoOfDay()));
+
+        List<MealTo> result = new ArrayList<>(startTime == null && endTime == null ? mealsTo.length : 16);
+        for (MealTo mealTo : mealsTo) {
+            if (mealTo != null) {
+                result.add(mealTo);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isOrderedDesc(List<Meal> meals) {
+        for (int i = 1; i < meals.size(); i++) {
+            if (meals.get(i).getDateTime().isAfter(meals.get(i - 1).getDateTime())) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static List<MealTo> filterByPredicate(Collection<Meal> meals, int caloriesPerDay, Predicate<Meal> filter) {
+    // previous two-pass streams implementation of getTos/getFilteredTos, benchmark baseline
+    static List<MealTo> filteredByStreams(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) {
         Map<LocalDate, Integer> caloriesSumByDate = meals.stream()
                 .collect(
                         Collectors.groupingBy(Meal::getDate, Collectors.summingInt(Meal::getCalories))
                 );
 
         return meals.stream()
-                .filter(filter)
+                .filter(meal -> Util.isBetweenHalfOpen(meal.getTime(), startTime, endTime))
                 .map(meal -> createTo(meal, caloriesSumByDate.get(meal.getDate()) > caloriesPerDay))
                 .toList();
     }
@@ -57,7 +128,7 @@ public class MealsUtil {
         return mealsTo;
     }
 
-    private static List<MealTo> filteredByRecursion(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) {
+    static List<MealTo> filteredByRecursion(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) {
         ArrayList<MealTo> result = new ArrayList<>();
         filterWithRecursion(new LinkedList<>(meals), startTime, endTime, caloriesPerDay, new HashMap<>(), result);
         return result;
@@ -75,7 +146,7 @@ public class MealsUtil {
         }
     }
 
-    private static List<MealTo> filteredBySetterRecursion(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) {
+    static List<MealTo> filteredBySetterRecursion(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) {
         class MealNode {
             private final MealNode prev;
             private final MealTo mealTo;
@@ -139,7 +210,7 @@ public class MealsUtil {
         return mealsTo;
     }
 
-    private static List<MealTo> filteredByExecutor(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) throws InterruptedException {
+    static List<MealTo> filteredByExecutor(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) throws InterruptedException {
         Map<LocalDate, Integer> caloriesSumByDate = new HashMap<>();
         List<Callable<Void>> tasks = new ArrayList<>();
         final List<MealTo> mealsTo = Collections.synchronizedList(new ArrayList<>());
@@ -180,7 +251,7 @@ public class MealsUtil {
         return mealsTo;
     }
 
-    private static List<MealTo> filteredByCountDownLatch(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) throws InterruptedException {
+    static List<MealTo> filteredByCountDownLatch(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) throws InterruptedException {
         Map<LocalDate, Integer> caloriesSumByDate = new HashMap<>();
         List<MealTo> mealsTo = Collections.synchronizedList(new ArrayList<>());
         CountDownLatch latchCycles = new CountDownLatch(meals.size());
@@ -237,7 +308,7 @@ public class MealsUtil {
         return result;
     }
 
-    private static List<MealTo> filteredByFlatMap(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) {
+    static List<MealTo> filteredByFlatMap(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) {
         Collection<List<Meal>> list = meals.stream()
                 .collect(Collectors.groupingBy(Meal::getDate)).values();
 
@@ -250,7 +321,7 @@ public class MealsUtil {
                 }).collect(toList());
     }
 
-    private static List<MealTo> filteredByCollector(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) {
+    static List<MealTo> filteredByCollector(List<Meal> meals, LocalTime startTime, LocalTime endTime, int caloriesPerDay) {
         final class Aggregate {
             private final List<Meal> dailyMeals = new ArrayList<>();
             private int dailySumOfCalories;
@@ -286,4 +357,81 @@ public class MealsUtil {
     public static MealTo createTo(Meal meal, boolean excess) {
         return new MealTo(meal.getId(), meal.getDateTime(), meal.getDescription(), meal.getCalories(), excess);
     }
+
+    // pool threads are created by the first parallel calculation only
+    private static class ParallelPoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool(
+                Integer.getInteger("topjava.mealsUtil.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static class DaysRangeTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final List<Meal> meals;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final MealTo[] mealsTo;
+        private final int caloriesPerDay;
+        private final long startNanoOfDay;
+        private final long endNanoOfDay;
+
+        DaysRangeTask(List<Meal> meals, int from, int to, int chunkSize, MealTo[] mealsTo,
+                      int caloriesPerDay, long startNanoOfDay, long endNanoOfDay) {
+            this.meals = meals;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.mealsTo = mealsTo;
+            this.caloriesPerDay = caloriesPerDay;
+            this.startNanoOfDay = startNanoOfDay;
+            this.endNanoOfDay = endNanoOfDay;
+        }
+
+        @Override
+        protected void compute() {
+            int split = to - from > chunkSize ? daysBoundary((from + to) >>> 1) : from;
+            if (split == from) {
+                computeChunk();
+            } else {
+                invokeAll(new DaysRangeTask(meals, from, split, chunkSize, mealsTo, caloriesPerDay, startNanoOfDay, endNanoOfDay),
+                        new DaysRangeTask(meals, split, to, chunkSize, mealsTo, caloriesPerDay, startNanoOfDay, endNanoOfDay));
+            }
+        }
+
+        // nearest index to mid, which starts a new day, or from if [from, to) is a single day
+        private int daysBoundary(int mid) {
+            for (int up = mid, down = mid; up < to || down > from; up++, down--) {
+                if (up < to && !isSameDay(up - 1, up)) {
+                    return up;
+                }
+                if (down > from && !isSameDay(down - 1, down)) {
+                    return down;
+                }
+            }
+            return from;
+        }
+
+        private boolean isSameDay(int i, int j) {
+            return meals.get(i).getDateTime().toLocalDate().equals(meals.get(j).getDateTime().toLocalDate());
+        }
+
+        private void computeChunk() {
+            DailyCalories caloriesSumByDate = new DailyCalories((to - from) / 4);
+            for (int i = from; i < to; i++) {
+                Meal meal = meals.get(i);
+                caloriesSumByDate.add((int) meal.getDateTime().toLocalDate().toEpochDay(), meal.getCalories());
+            }
+            for (int i = from; i < to; i++) {
+                Meal meal = meals.get(i);
+                LocalDateTime dateTime = meal.getDateTime();
+                long nanoOfDay = dateTime.toLocalTime().toNanoOfDay();
+                if (nanoOfDay >= startNanoOfDay && nanoOfDay < endNanoOfDay) {
+                    int caloriesSum = caloriesSumByDate.get((int) dateTime.toLocalDate().toEpochDay());
+                    mealsTo[i] = createTo(meal, caloriesSum > caloriesPerDay);
+                }
+            }
+        }
+    }
 }
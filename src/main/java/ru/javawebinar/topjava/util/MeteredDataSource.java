@@ -0,0 +1,113 @@
+package ru.javawebinar.topjava.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts connection acquisitions of the target (pool) DataSource into histogram of {@link #BUCKET_BOUNDS_MILLIS}:
+ * long acquisitions mean pool saturation. Counters are lock-free, {@link #reset()} starts a new measurement window.
+ */
+public class MeteredDataSource extends DelegatingDataSource {
+    // upper bounds (inclusive) of histogram buckets, the last bucket is unbounded
+    public static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 5000};
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder failures = new LongAdder();
+    private volatile long startTime;
+
+    public MeteredDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+        reset();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection();
+            record(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection(username, password);
+            record(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    // acquisitions by BUCKET_BOUNDS_MILLIS, not cumulative; the last is above all bounds
+    public long[] getHistogram() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    // acquisitions failed by pool timeout or DB error
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public double getAvgMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.sum() / 1_000_000d / count;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000d;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+        maxNanos.reset();
+        failures.reset();
+        startTime = System.currentTimeMillis();
+    }
+
+    private void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MILLIS.length && nanos > BUCKET_BOUNDS_MILLIS[bucket] * 1_000_000) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+}
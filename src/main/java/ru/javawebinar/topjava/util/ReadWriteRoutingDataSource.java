@@ -0,0 +1,131 @@
+package ru.javawebinar.topjava.util;
+
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections of <code>@Transactional(readOnly = true)</code> transactions are taken from replicas, others from primary.
+ * After a committed write of the user data (by {@link DataSourceRouting#forUser}) reads of this user go to primary
+ * for <code>readYourWritesMillis</code>, so replication lag doesn't hide the change.
+ * Reads by {@link DataSourceRouting#onPrimary} always go to primary.
+ * <p>
+ * Read-only flag is set after the transaction has got its connection,
+ * so it must be wrapped in {@link LazyConnectionDataSourceProxy}: connection is taken at the first statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+    private static final int MAX_WRITERS = 10_000;
+
+    public enum Balance {
+        ROUND_ROBIN,
+        // by borrowed connections of tomcat-jdbc pools, round-robin among equal
+        LEAST_CONNECTIONS
+    }
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Balance balance;
+    private final long readYourWritesMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    // userId -> end of the read-your-writes window
+    private final Map<Integer, Long> writers = new ConcurrentHashMap<>();
+    // end of the window of writes to all users
+    private volatile long allWrittenUntil;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, Balance balance, long readYourWritesMillis) {
+        Assert.notEmpty(replicas, "replicas must not be empty");
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.balance = balance;
+        this.readYourWritesMillis = readYourWritesMillis;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer userId = DataSourceRouting.getUserId();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return DataSourceRouting.isPrimary() || isWritten(userId) ? PRIMARY : nextReplica();
+        }
+        if (userId != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    written(userId);
+                }
+            });
+        }
+        return PRIMARY;
+    }
+
+    private int nextReplica() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (balance == Balance.ROUND_ROBIN) {
+            return start;
+        }
+        int least = start;
+        int leastActive = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (start + i) % replicas.size();
+            DataSource dataSource = replicas.get(replica);
+            int active = dataSource instanceof DataSourceProxy ? ((DataSourceProxy) dataSource).getActive() : 0;
+            if (active < leastActive) {
+                least = replica;
+                leastActive = active;
+            }
+        }
+        return least;
+    }
+
+    // in the read-your-writes window; reads of all users are in the window of any user
+    private boolean isWritten(Integer userId) {
+        long now = System.currentTimeMillis();
+        if (allWrittenUntil > now) {
+            return true;
+        } else if (userId == null) {
+            return false;
+        } else if (userId == DataSourceRouting.ALL_USERS) {
+            return writers.values().stream().anyMatch(until -> until > now);
+        }
+        Long until = writers.get(userId);
+        return until != null && until > now;
+    }
+
+    private void written(int userId) {
+        long now = System.currentTimeMillis();
+        if (userId == DataSourceRouting.ALL_USERS) {
+            allWrittenUntil = now + readYourWritesMillis;
+            return;
+        }
+        if (writers.size() > MAX_WRITERS) {
+            writers.values().removeIf(until -> until <= now);
+        }
+        writers.put(userId, now + readYourWritesMillis);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.javawebinar.topjava.web;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import ru.javawebinar.topjava.AuthorizedUser;
+import ru.javawebinar.topjava.service.AuthorizedUserCache;
+
+/**
+ * Stateless http-basic of <code>/rest/**</code> authenticates every request:
+ * successful authentications of <code>delegate</code> are kept in {@link AuthorizedUserCache},
+ * so repeated requests with the same credentials don't load the user.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final AuthorizedUserCache cache;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, AuthorizedUserCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        Object credentials = authentication.getCredentials();
+        if (credentials == null) {
+            return delegate.authenticate(authentication);
+        }
+        // UserService.loadUserByUsername ignores case of email
+        AuthorizedUser user = cache.get(authentication.getName().toLowerCase(), credentials.toString(),
+                () -> (AuthorizedUser) delegate.authenticate(authentication).getPrincipal());
+        UsernamePasswordAuthenticationToken result = UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+        result.setDetails(authentication.getDetails());
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+}
@@ -7,7 +7,6 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import ru.javawebinar.topjava.service.MealService;
-import ru.javawebinar.topjava.util.MealsUtil;
 
 @Controller
 public class RootController {
@@ -38,7 +37,7 @@ public class RootController {
     public String getMeals(Model model) {
         log.info("meals");
         model.addAttribute("meals",
-                MealsUtil.getTos(mealService.getAll(SecurityUtil.authUserId()), SecurityUtil.authUserCaloriesPerDay()));
+                mealService.getAllTos(SecurityUtil.authUserId(), SecurityUtil.authUserCaloriesPerDay()));
         return "meals";
     }
 }
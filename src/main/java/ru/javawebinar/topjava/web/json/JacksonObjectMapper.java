@@ -5,9 +5,13 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import java.io.Serial;
+
 /**
  * <p>
  * Handling Hibernate lazy-loading
@@ -21,6 +25,8 @@ public class JacksonObjectMapper extends ObjectMapper {
     private static final ObjectMapper MAPPER = new JacksonObjectMapper();
 
     private JacksonObjectMapper() {
+        // before Hibernate5Module, which adds its introspector to this one
+        setAnnotationIntrospector(new EnhancedEntityIntrospector());
         registerModule(new Hibernate5Module());
 
         registerModule(new JavaTimeModule());
@@ -34,4 +40,16 @@ public class JacksonObjectMapper extends ObjectMapper {
     public static ObjectMapper getMapper() {
         return MAPPER;
     }
+
+    // state of Hibernate bytecode enhancement (dirty tracker, interceptor, ...) is not a part of entity JSON
+    private static class EnhancedEntityIntrospector extends JacksonAnnotationIntrospector {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private static final String ENHANCED_PREFIX = "$$_hibernate_";
+
+        @Override
+        public boolean hasIgnoreMarker(AnnotatedMember m) {
+            return m.getName().startsWith(ENHANCED_PREFIX) || super.hasIgnoreMarker(m);
+        }
+    }
 }
\ No newline at end of file
@@ -6,10 +6,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.Nullable;
 import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.service.MealService;
+import ru.javawebinar.topjava.to.BatchResultTo;
+import ru.javawebinar.topjava.to.ImportResultTo;
 import ru.javawebinar.topjava.to.MealTo;
-import ru.javawebinar.topjava.util.MealsUtil;
+import ru.javawebinar.topjava.to.PageTo;
 import ru.javawebinar.topjava.web.SecurityUtil;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
@@ -38,7 +43,7 @@ public abstract class AbstractMealController {
     public List<MealTo> getAll() {
         int userId = SecurityUtil.authUserId();
         log.info("getAll for user {}", userId);
-        return MealsUtil.getTos(service.getAll(userId), SecurityUtil.authUserCaloriesPerDay());
+        return service.getAllTos(userId, SecurityUtil.authUserCaloriesPerDay());
     }
 
     public Meal create(Meal meal) {
@@ -48,6 +53,18 @@ public abstract class AbstractMealController {
         return service.create(meal, userId);
     }
 
+    public BatchResultTo<Meal> createAll(List<Meal> meals) {
+        int userId = SecurityUtil.authUserId();
+        log.info("createAll {} meals for user {}", meals.size(), userId);
+        return service.createAll(meals, userId);
+    }
+
+    public ImportResultTo importMeals(String format, InputStream in) throws IOException {
+        int userId = SecurityUtil.authUserId();
+        log.info("import {} for user {}", format, userId);
+        return service.importMeals(MealImportReader.of(format, in), userId);
+    }
+
     public void update(Meal meal, int id) {
         int userId = SecurityUtil.authUserId();
         log.info("update {} for user {}", meal, userId);
@@ -66,7 +83,23 @@ public abstract class AbstractMealController {
         int userId = SecurityUtil.authUserId();
         log.info("getBetween dates({} - {}) time({} - {}) for user {}", startDate, endDate, startTime, endTime, userId);
 
-        List<Meal> mealsDateFiltered = service.getBetweenInclusive(startDate, endDate, userId);
-        return MealsUtil.getFilteredTos(mealsDateFiltered, SecurityUtil.authUserCaloriesPerDay(), startTime, endTime);
+        return service.getFilteredTos(startDate, startTime, endDate, endTime, SecurityUtil.authUserCaloriesPerDay(), userId);
+    }
+
+    public PageTo<MealTo> getPage(@Nullable LocalDate startDate, @Nullable LocalTime startTime,
+                                  @Nullable LocalDate endDate, @Nullable LocalTime endTime,
+                                  @Nullable String cursor, int limit) {
+        int userId = SecurityUtil.authUserId();
+        log.info("getPage dates({} - {}) time({} - {}) cursor {} limit {} for user {}", startDate, endDate, startTime, endTime, cursor, limit, userId);
+        return service.getFilteredTosPage(startDate, startTime, endDate, endTime, cursor, limit, SecurityUtil.authUserCaloriesPerDay(), userId);
+    }
+
+    public void export(String format, HttpServletResponse response) throws IOException {
+        int userId = SecurityUtil.authUserId();
+        log.info("export {} for user {}", format, userId);
+        try (MealExportWriter writer = MealExportWriter.of(format, false, response)) {
+            service.export(userId, writer);
+            log.info("exported {} meals for user {}", writer.getCount(), userId);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package ru.javawebinar.topjava.web.meal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import ru.javawebinar.topjava.service.MealService;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping(value = AdminMealRestController.REST_URL, produces = MediaType.APPLICATION_JSON_VALUE)
+public class AdminMealRestController {
+    static final String REST_URL = "/rest/admin/meals";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final MealService service;
+
+    public AdminMealRestController(MealService service) {
+        this.service = service;
+    }
+
+    // meals of all users before date (exclusive), number of deleted meals
+    @DeleteMapping
+    public int purge(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate before) {
+        log.info("purge meals before {}", before);
+        return service.purge(before);
+    }
+
+    // number of (user, day) totals after rebuild
+    @PostMapping("/daily-totals/rebuild")
+    public int rebuildDailyTotals() {
+        log.info("rebuildDailyTotals");
+        return service.rebuildDailyTotals();
+    }
+
+    // number of inconsistent (user, day) totals, 0 if totals can be trusted
+    @GetMapping("/daily-totals/check")
+    public int checkDailyTotals() {
+        log.info("checkDailyTotals");
+        return service.checkDailyTotals();
+    }
+
+    // meals of all users
+    @GetMapping(value = "/export", produces = {MealExportWriter.TEXT_CSV, MealExportWriter.APPLICATION_NDJSON})
+    public void export(@RequestParam(defaultValue = "csv") String format, HttpServletResponse response) throws IOException {
+        log.info("export {} for all users", format);
+        try (MealExportWriter writer = MealExportWriter.of(format, true, response)) {
+            service.export(null, writer);
+            log.info("exported {} meals for all users", writer.getCount());
+        }
+    }
+}
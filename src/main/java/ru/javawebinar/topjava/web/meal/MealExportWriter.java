@@ -0,0 +1,117 @@
+package ru.javawebinar.topjava.web.meal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.web.json.JacksonObjectMapper;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Writes exported meals into the response one by one, while they are read from DB.
+ * Only output buffer is held in memory, whatever the history size is.
+ */
+abstract class MealExportWriter implements ObjIntConsumer<MealTo>, Closeable {
+    static final String TEXT_CSV = "text/csv";
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    protected final boolean withUserId;
+    private long count;
+
+    private MealExportWriter(boolean withUserId) {
+        this.withUserId = withUserId;
+    }
+
+    // format: csv|ndjson
+    static MealExportWriter of(String format, boolean withUserId, HttpServletResponse response) throws IOException {
+        MealExportWriter writer = switch (format.toLowerCase()) {
+            case "csv" -> new Csv(withUserId, response);
+            case "ndjson" -> new NdJson(withUserId, response);
+            default -> throw new IllegalArgumentException("Unsupported export format " + format);
+        };
+        response.setHeader("Content-Disposition", "attachment; filename=\"meals." + format.toLowerCase() + '"');
+        return writer;
+    }
+
+    @Override
+    public void accept(MealTo mealTo, int userId) {
+        try {
+            write(mealTo, userId);
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    protected abstract void write(MealTo mealTo, int userId) throws IOException;
+
+    private static Writer getWriter(String contentType, HttpServletResponse response) throws IOException {
+        response.setContentType(contentType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return response.getWriter();
+    }
+
+    private static class Csv extends MealExportWriter {
+        private final Writer writer;
+
+        Csv(boolean withUserId, HttpServletResponse response) throws IOException {
+            super(withUserId);
+            writer = getWriter(TEXT_CSV, response);
+            writer.write((withUserId ? "userId," : "") + "id,dateTime,description,calories,excess\n");
+        }
+
+        @Override
+        protected void write(MealTo mealTo, int userId) throws IOException {
+            if (withUserId) {
+                writer.write(userId + ",");
+            }
+            writer.write(mealTo.getId() + "," + mealTo.getDateTime() + ",\"" + mealTo.getDescription().replace("\"", "\"\"") + "\"," +
+                    mealTo.getCalories() + "," + mealTo.isExcess() + "\n");
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    // JSON object per line
+    private static class NdJson extends MealExportWriter {
+        private final JsonGenerator generator;
+
+        NdJson(boolean withUserId, HttpServletResponse response) throws IOException {
+            super(withUserId);
+            generator = JacksonObjectMapper.getMapper().getFactory().createGenerator(getWriter(APPLICATION_NDJSON, response));
+            generator.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        protected void write(MealTo mealTo, int userId) throws IOException {
+            generator.writeStartObject();
+            if (withUserId) {
+                generator.writeNumberField("userId", userId);
+            }
+            generator.writeNumberField("id", mealTo.getId());
+            generator.writeStringField("dateTime", mealTo.getDateTime().toString());
+            generator.writeStringField("description", mealTo.getDescription());
+            generator.writeNumberField("calories", mealTo.getCalories());
+            generator.writeBooleanField("excess", mealTo.isExcess());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (getCount() > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.close();
+        }
+    }
+}
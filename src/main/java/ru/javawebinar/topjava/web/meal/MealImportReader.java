@@ -0,0 +1,139 @@
+package ru.javawebinar.topjava.web.meal;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.web.json.JacksonObjectMapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Meals of the upload, parsed one by one while they are consumed: only the current row is held in memory.
+ * Ids of the upload are ignored, so the export output can be imported as is.
+ * A row which can't be converted to {@link Meal} is returned as null (rejected by validation), malformed JSON fails the import.
+ */
+class MealImportReader {
+
+    private MealImportReader() {
+    }
+
+    // format: ndjson|json|csv, JSON array is accepted as ndjson
+    static Iterator<Meal> of(String format, InputStream in) throws IOException {
+        return switch (format.toLowerCase()) {
+            case "ndjson", "json" -> json(in);
+            case "csv" -> csv(in);
+            default -> throw new IllegalArgumentException("Unsupported import format " + format);
+        };
+    }
+
+    private static Iterator<Meal> json(InputStream in) throws IOException {
+        MappingIterator<Meal> iterator = JacksonObjectMapper.getMapper().readerFor(Meal.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValues(in);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Meal next() {
+                try {
+                    return asNew(iterator.next());
+                } catch (RuntimeJsonMappingException e) {
+                    return null;
+                }
+            }
+        };
+    }
+
+    // header with dateTime, description, calories columns in any order, quoted values must not contain line breaks
+    private static Iterator<Meal> csv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            return Collections.emptyIterator();
+        }
+        List<String> columns = parseCsvLine(header);
+        int dateTime = columns.indexOf("dateTime");
+        int description = columns.indexOf("description");
+        int calories = columns.indexOf("calories");
+        if (dateTime < 0 || description < 0 || calories < 0) {
+            throw new IllegalArgumentException("CSV header must contain dateTime, description, calories: " + header);
+        }
+        return new Iterator<>() {
+            private String line = readLine();
+
+            @Override
+            public boolean hasNext() {
+                return line != null;
+            }
+
+            @Override
+            public Meal next() {
+                List<String> values = parseCsvLine(line);
+                line = readLine();
+                try {
+                    return new Meal(null, LocalDateTime.parse(values.get(dateTime)), values.get(description), Integer.parseInt(values.get(calories)));
+                } catch (RuntimeException e) {
+                    return null;
+                }
+            }
+
+            // next not blank line, null at the end
+            private String readLine() {
+                try {
+                    String next;
+                    do {
+                        next = reader.readLine();
+                    } while (next != null && next.isBlank());
+                    return next;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static Meal asNew(Meal meal) {
+        if (meal != null) {
+            meal.setId(null);
+        }
+        return meal;
+    }
+}
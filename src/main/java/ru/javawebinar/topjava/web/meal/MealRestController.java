@@ -7,8 +7,14 @@ import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.BatchResultTo;
+import ru.javawebinar.topjava.to.ImportResultTo;
 import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.to.PageTo;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -56,6 +62,19 @@ public class MealRestController extends AbstractMealController {
         return ResponseEntity.created(uriOfNewResource).body(created);
     }
 
+    @Override
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResultTo<Meal> createAll(@RequestBody List<Meal> meals) {
+        return super.createAll(meals);
+    }
+
+    // format: ndjson|json|csv, the upload is parsed while meals are saved
+    @Override
+    @PostMapping("/import")
+    public ImportResultTo importMeals(@RequestParam(defaultValue = "ndjson") String format, InputStream in) throws IOException {
+        return super.importMeals(format, in);
+    }
+
     @Override
     @GetMapping("/filter")
     public List<MealTo> getBetween(
@@ -65,4 +84,22 @@ public class MealRestController extends AbstractMealController {
             @RequestParam @Nullable LocalTime endTime) {
         return super.getBetween(startDate, startTime, endDate, endTime);
     }
+
+    @Override
+    @GetMapping("/page")
+    public PageTo<MealTo> getPage(
+            @RequestParam @Nullable LocalDate startDate,
+            @RequestParam @Nullable LocalTime startTime,
+            @RequestParam @Nullable LocalDate endDate,
+            @RequestParam @Nullable LocalTime endTime,
+            @RequestParam @Nullable String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return super.getPage(startDate, startTime, endDate, endTime, cursor, limit);
+    }
+
+    @Override
+    @GetMapping(value = "/export", produces = {MealExportWriter.TEXT_CSV, MealExportWriter.APPLICATION_NDJSON})
+    public void export(@RequestParam(defaultValue = "csv") String format, HttpServletResponse response) throws IOException {
+        super.export(format, response);
+    }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
 import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.to.PageTo;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -47,4 +48,16 @@ public class MealUIController extends AbstractMealController {
             @RequestParam @Nullable LocalTime endTime) {
         return super.getBetween(startDate, startTime, endDate, endTime);
     }
+
+    @Override
+    @GetMapping("/page")
+    public PageTo<MealTo> getPage(
+            @RequestParam @Nullable LocalDate startDate,
+            @RequestParam @Nullable LocalTime startTime,
+            @RequestParam @Nullable LocalDate endDate,
+            @RequestParam @Nullable LocalTime endTime,
+            @RequestParam @Nullable String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return super.getPage(startDate, startTime, endDate, endTime, cursor, limit);
+    }
 }
\ No newline at end of file
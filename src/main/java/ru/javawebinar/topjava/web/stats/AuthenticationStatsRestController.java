@@ -0,0 +1,37 @@
+package ru.javawebinar.topjava.web.stats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import ru.javawebinar.topjava.service.AuthorizedUserCache;
+import ru.javawebinar.topjava.to.AuthenticationStatsTo;
+
+@RestController
+@RequestMapping(value = AuthenticationStatsRestController.REST_URL, produces = MediaType.APPLICATION_JSON_VALUE)
+public class AuthenticationStatsRestController {
+    static final String REST_URL = "/rest/admin/stats/authentication";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final AuthorizedUserCache cache;
+
+    public AuthenticationStatsRestController(AuthorizedUserCache cache) {
+        this.cache = cache;
+    }
+
+    @GetMapping
+    public AuthenticationStatsTo get() {
+        log.info("get authentication cache statistics");
+        return cache.getStats();
+    }
+
+    // resets hit/miss counters, cached users are kept
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reset() {
+        log.info("reset authentication cache statistics");
+        cache.resetStatistics();
+    }
+}
@@ -0,0 +1,48 @@
+package ru.javawebinar.topjava.web.stats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import ru.javawebinar.topjava.service.DataSourceStatsService;
+import ru.javawebinar.topjava.to.DataSourceStatsTo;
+import ru.javawebinar.topjava.util.exception.NotFoundException;
+
+// DataSource statistics exist with spring-db.xml only (not for in-memory repositories)
+@RestController
+@RequestMapping(value = DataSourceStatsRestController.REST_URL, produces = MediaType.APPLICATION_JSON_VALUE)
+public class DataSourceStatsRestController {
+    static final String REST_URL = "/rest/admin/stats/datasource";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final ObjectProvider<DataSourceStatsService> service;
+
+    public DataSourceStatsRestController(ObjectProvider<DataSourceStatsService> service) {
+        this.service = service;
+    }
+
+    @GetMapping
+    public DataSourceStatsTo get() {
+        log.info("get DataSource statistics");
+        return getService().getStats();
+    }
+
+    // starts a new measurement window of acquisitions, pool counters are current
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reset() {
+        log.info("reset DataSource statistics");
+        getService().reset();
+    }
+
+    private DataSourceStatsService getService() {
+        DataSourceStatsService statsService = service.getIfAvailable();
+        if (statsService == null) {
+            throw new NotFoundException("DataSource statistics are not available for in-memory repositories");
+        }
+        return statsService;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.javawebinar.topjava.web.stats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import ru.javawebinar.topjava.service.HibernateStatsService;
+import ru.javawebinar.topjava.to.HibernateStatsTo;
+import ru.javawebinar.topjava.util.exception.NotFoundException;
+
+// Hibernate statistics exist in jpa/datajpa profiles only
+@RestController
+@RequestMapping(value = HibernateStatsRestController.REST_URL, produces = MediaType.APPLICATION_JSON_VALUE)
+public class HibernateStatsRestController {
+    static final String REST_URL = "/rest/admin/stats/hibernate";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final ObjectProvider<HibernateStatsService> service;
+
+    public HibernateStatsRestController(ObjectProvider<HibernateStatsService> service) {
+        this.service = service;
+    }
+
+    @GetMapping
+    public HibernateStatsTo get() {
+        log.info("get Hibernate statistics");
+        return getService().getStats();
+    }
+
+    // starts a new measurement window
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reset() {
+        log.info("reset Hibernate statistics");
+        getService().reset();
+    }
+
+    @PatchMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void enable(@RequestParam boolean enabled) {
+        log.info(enabled ? "enable Hibernate statistics" : "disable Hibernate statistics");
+        getService().setEnabled(enabled);
+    }
+
+    private HibernateStatsService getService() {
+        HibernateStatsService statsService = service.getIfAvailable();
+        if (statsService == null) {
+            throw new NotFoundException("Hibernate statistics are not available for jdbc repository implementation");
+        }
+        return statsService;
+    }
+}
@@ -3,22 +3,33 @@ package ru.javawebinar.topjava.web.user;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.model.User;
+import ru.javawebinar.topjava.service.MealService;
 import ru.javawebinar.topjava.service.UserService;
+import ru.javawebinar.topjava.to.PageTo;
 import ru.javawebinar.topjava.to.UserTo;
 import ru.javawebinar.topjava.util.UsersUtil;
 
+import javax.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
 import java.util.List;
 
 import static ru.javawebinar.topjava.util.ValidationUtil.assureIdConsistent;
 import static ru.javawebinar.topjava.util.ValidationUtil.checkNew;
 
 public abstract class AbstractUserController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     protected final Logger log = LoggerFactory.getLogger(getClass());
 
     @Autowired
     private UserService service;
 
+    @Autowired
+    private MealService mealService;
+
     public List<User> getAll() {
         log.info("getAll");
         return service.getAll();
@@ -63,9 +74,20 @@ public abstract class AbstractUserController {
         return service.getByEmail(email);
     }
 
-    public User getWithMeals(int id) {
-        log.info("getWithMeals {}", id);
-        return service.getWithMeals(id);
+    /**
+     * Copy of user with a page of meals ORDERED dateTime desc (see {@link MealService#getBetweenInclusivePage}),
+     * the cursor of the next page is returned in {@link #NEXT_CURSOR_HEADER}
+     */
+    public User getWithMeals(int id, @Nullable LocalDate startDate, @Nullable LocalDate endDate,
+                             @Nullable String cursor, int limit, HttpServletResponse response) {
+        log.info("getWithMeals {} dates({} - {}) cursor {} limit {}", id, startDate, endDate, cursor, limit);
+        User user = new User(service.get(id));
+        PageTo<Meal> meals = mealService.getBetweenInclusivePage(startDate, endDate, cursor, limit, id);
+        user.setMeals(meals.getContent());
+        if (meals.getNext() != null) {
+            response.setHeader(NEXT_CURSOR_HEADER, meals.getNext());
+        }
+        return user;
     }
 
     public void enable(int id, boolean enabled) {
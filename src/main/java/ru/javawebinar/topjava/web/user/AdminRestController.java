@@ -3,11 +3,14 @@ package ru.javawebinar.topjava.web.user;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.javawebinar.topjava.model.User;
 
+import javax.servlet.http.HttpServletResponse;
 import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -57,9 +60,15 @@ public class AdminRestController extends AbstractUserController {
         return super.getByMail(email);
     }
 
+    @Override
     @GetMapping("/{id}/with-meals")
-    public User getWithMeals(@PathVariable int id) {
-        return super.getWithMeals(id);
+    public User getWithMeals(@PathVariable int id,
+                             @RequestParam @Nullable LocalDate startDate,
+                             @RequestParam @Nullable LocalDate endDate,
+                             @RequestParam @Nullable String cursor,
+                             @RequestParam(defaultValue = "20") int limit,
+                             HttpServletResponse response) {
+        return super.getWithMeals(id, startDate, endDate, cursor, limit, response);
     }
 
     @Override
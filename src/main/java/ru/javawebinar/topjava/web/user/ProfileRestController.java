@@ -2,10 +2,14 @@ package ru.javawebinar.topjava.web.user;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
 import ru.javawebinar.topjava.model.User;
 import ru.javawebinar.topjava.to.UserTo;
 
+import javax.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
+
 import static ru.javawebinar.topjava.web.SecurityUtil.authUserId;
 
 @RestController
@@ -36,7 +40,11 @@ public class ProfileRestController extends AbstractUserController {
     }
 
     @GetMapping("/with-meals")
-    public User getWithMeals() {
-        return super.getWithMeals(authUserId());
+    public User getWithMeals(@RequestParam @Nullable LocalDate startDate,
+                             @RequestParam @Nullable LocalDate endDate,
+                             @RequestParam @Nullable String cursor,
+                             @RequestParam(defaultValue = "20") int limit,
+                             HttpServletResponse response) {
+        return super.getWithMeals(authUserId(), startDate, endDate, cursor, limit, response);
     }
 }
\ No newline at end of file
@@ -1,13 +1,20 @@
+DROP TABLE IF EXISTS meal_daily_total;
 DROP TABLE IF EXISTS user_role;
 DROP TABLE IF EXISTS meal;
 DROP TABLE IF EXISTS users;
 DROP SEQUENCE IF EXISTS global_seq;
+DROP SEQUENCE IF EXISTS user_seq;
+DROP SEQUENCE IF EXISTS meal_seq;
 
-CREATE SEQUENCE global_seq START WITH 100000;
+-- INCREMENT BY = AbstractBaseEntity.SEQ_ALLOCATION_SIZE, ids below START WITH are reserved for populateDB.sql
+-- Hibernate and jdbc repositories (PooledLoIdGenerator) take SEQ_ALLOCATION_SIZE ids per nextval,
+-- the id column default is left for manual SQL only: it spends a whole block per row
+CREATE SEQUENCE user_seq START WITH 100100 INCREMENT BY 50;
+CREATE SEQUENCE meal_seq START WITH 100100 INCREMENT BY 50;
 
 CREATE TABLE users
 (
-    id               INTEGER PRIMARY KEY DEFAULT nextval('global_seq'),
+    id               INTEGER PRIMARY KEY DEFAULT nextval('user_seq'),
     name             VARCHAR                           NOT NULL,
     email            VARCHAR                           NOT NULL,
     password         VARCHAR                           NOT NULL,
@@ -27,11 +34,20 @@ CREATE TABLE user_role
 
 CREATE TABLE meal
 (
-    id          INTEGER PRIMARY KEY DEFAULT nextval('global_seq'),
+    id          INTEGER PRIMARY KEY DEFAULT nextval('meal_seq'),
     user_id     INTEGER   NOT NULL,
     date_time   TIMESTAMP NOT NULL,
     description TEXT      NOT NULL,
     calories    INT       NOT NULL,
     FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
 );
-CREATE UNIQUE INDEX meal_unique_user_datetime_idx ON meal (user_id, date_time);
\ No newline at end of file
+CREATE UNIQUE INDEX meal_unique_user_datetime_idx ON meal (user_id, date_time);
+
+CREATE TABLE meal_daily_total
+(
+    user_id   INTEGER NOT NULL,
+    meal_date DATE    NOT NULL,
+    calories  INT     NOT NULL,
+    PRIMARY KEY (user_id, meal_date),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
\ No newline at end of file
@@ -1,13 +1,20 @@
+DROP TABLE meal_daily_total IF EXISTS;
 DROP TABLE user_role IF EXISTS;
 DROP TABLE meal IF EXISTS;
 DROP TABLE users IF EXISTS;
 DROP SEQUENCE global_seq IF EXISTS;
+DROP SEQUENCE user_seq IF EXISTS;
+DROP SEQUENCE meal_seq IF EXISTS;
 
-CREATE SEQUENCE GLOBAL_SEQ AS INTEGER START WITH 100000;
+-- INCREMENT BY = AbstractBaseEntity.SEQ_ALLOCATION_SIZE, ids below START WITH are reserved for populateDB.sql
+-- Hibernate and jdbc repositories (PooledLoIdGenerator) take SEQ_ALLOCATION_SIZE ids per nextval,
+-- the id column default is left for manual SQL only: it spends a whole block per row
+CREATE SEQUENCE USER_SEQ AS INTEGER START WITH 100100 INCREMENT BY 50;
+CREATE SEQUENCE MEAL_SEQ AS INTEGER START WITH 100100 INCREMENT BY 50;
 
 CREATE TABLE users
 (
-    id               INTEGER GENERATED BY DEFAULT AS SEQUENCE GLOBAL_SEQ PRIMARY KEY,
+    id               INTEGER GENERATED BY DEFAULT AS SEQUENCE USER_SEQ PRIMARY KEY,
     name             VARCHAR(255)            NOT NULL,
     email            VARCHAR(255)            NOT NULL,
     password         VARCHAR(255)            NOT NULL,
@@ -28,7 +35,7 @@ CREATE TABLE user_role
 
 CREATE TABLE meal
 (
-    id          INTEGER GENERATED BY DEFAULT AS SEQUENCE GLOBAL_SEQ PRIMARY KEY,
+    id          INTEGER GENERATED BY DEFAULT AS SEQUENCE MEAL_SEQ PRIMARY KEY,
     date_time   TIMESTAMP    NOT NULL,
     description VARCHAR(255) NOT NULL,
     calories    INT          NOT NULL,
@@ -36,4 +43,13 @@ CREATE TABLE meal
     FOREIGN KEY (user_id) REFERENCES USERS (id) ON DELETE CASCADE
 );
 CREATE UNIQUE INDEX meal_unique_user_datetime_idx
-    ON meal (user_id, date_time)
\ No newline at end of file
+    ON meal (user_id, date_time);
+
+CREATE TABLE meal_daily_total
+(
+    user_id   INTEGER NOT NULL,
+    meal_date DATE    NOT NULL,
+    calories  INT     NOT NULL,
+    PRIMARY KEY (user_id, meal_date),
+    FOREIGN KEY (user_id) REFERENCES USERS (id) ON DELETE CASCADE
+)
\ No newline at end of file
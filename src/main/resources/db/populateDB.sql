@@ -1,25 +1,31 @@
+DELETE FROM meal_daily_total;
 DELETE FROM user_role;
 DELETE FROM meal;
 DELETE FROM users;
-ALTER SEQUENCE global_seq RESTART WITH 100000;
+-- explicit ids below the sequences start: sequences are not restarted, Hibernate may still hold a block of their ids
 
-INSERT INTO users (name, email, password)
-VALUES ('User', 'user@yandex.ru', 'password'),
-       ('Admin', 'admin@gmail.com', 'admin'),
-       ('Guest', 'guest@gmail.com', 'guest');
+INSERT INTO users (id, name, email, password)
+VALUES (100000, 'User', 'user@yandex.ru', 'password'),
+       (100001, 'Admin', 'admin@gmail.com', 'admin'),
+       (100002, 'Guest', 'guest@gmail.com', 'guest');
 
 INSERT INTO user_role (role, user_id)
 VALUES ('USER', 100000),
        ('ADMIN', 100001),
        ('USER', 100001);
 
-INSERT INTO meal (date_time, description, calories, user_id)
-VALUES ('2020-01-30 10:00:00', 'Завтрак', 500, 100000),
-       ('2020-01-30 13:00:00', 'Обед', 1000, 100000),
-       ('2020-01-30 20:00:00', 'Ужин', 500, 100000),
-       ('2020-01-31 0:00:00', 'Еда на граничное значение', 100, 100000),
-       ('2020-01-31 10:00:00', 'Завтрак', 500, 100000),
-       ('2020-01-31 13:00:00', 'Обед', 1000, 100000),
-       ('2020-01-31 20:00:00', 'Ужин', 510, 100000),
-       ('2020-01-31 14:00:00', 'Админ ланч', 510, 100001),
-       ('2020-01-31 21:00:00', 'Админ ужин', 1500, 100001);
+INSERT INTO meal (id, date_time, description, calories, user_id)
+VALUES (100003, '2020-01-30 10:00:00', 'Завтрак', 500, 100000),
+       (100004, '2020-01-30 13:00:00', 'Обед', 1000, 100000),
+       (100005, '2020-01-30 20:00:00', 'Ужин', 500, 100000),
+       (100006, '2020-01-31 0:00:00', 'Еда на граничное значение', 100, 100000),
+       (100007, '2020-01-31 10:00:00', 'Завтрак', 500, 100000),
+       (100008, '2020-01-31 13:00:00', 'Обед', 1000, 100000),
+       (100009, '2020-01-31 20:00:00', 'Ужин', 510, 100000),
+       (100010, '2020-01-31 14:00:00', 'Админ ланч', 510, 100001),
+       (100011, '2020-01-31 21:00:00', 'Админ ужин', 1500, 100001);
+
+INSERT INTO meal_daily_total (user_id, meal_date, calories)
+SELECT user_id, CAST(date_time AS DATE), SUM(calories)
+  FROM meal
+ GROUP BY user_id, CAST(date_time AS DATE);
@@ -16,7 +16,8 @@ public class UserTestData {
     public static MatcherFactory.Matcher<User> USER_WITH_MEALS_MATCHER =
             MatcherFactory.usingAssertions(User.class,
 //     No need use ignoringAllOverriddenEquals, see https://assertj.github.io/doc/#breaking-changes
-                    (a, e) -> assertThat(a).usingRecursiveComparison().ignoringFields("registered", "meals.user").isEqualTo(e),
+                    (a, e) -> assertThat(a).usingRecursiveComparison().ignoringFields("registered", "meals.user")
+                            .ignoringFieldsMatchingRegexes(MatcherFactory.ENHANCED_FIELDS).isEqualTo(e),
                     (a, e) -> {
                         throw new UnsupportedOperationException();
                     });
@@ -0,0 +1,98 @@
+package ru.javawebinar.topjava.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.javawebinar.topjava.model.Meal;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+import static ru.javawebinar.topjava.MealTestData.*;
+import static ru.javawebinar.topjava.UserTestData.USER_ID;
+
+// second-level and query caches are on (see test spring-cache.xml): meal writes unseen or bulk for Hibernate must invalidate them
+public abstract class AbstractMealQueryCacheTest extends AbstractServiceTest {
+    public static final String HIBERNATE_CACHE = "hibernateCache";
+
+    private static final LocalDate DAY = LocalDate.of(2020, Month.JANUARY, 30);
+
+    @Autowired
+    private MealService service;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactory sessionFactory;
+    private boolean statisticsEnabled;
+
+    // populateDB.sql restores DB behind the caches.
+    // Ehcache regions are shared by the jpa and datajpa test contexts: meal_queries is evicted by name,
+    // evictAllRegions skips query regions not used yet by this session factory
+    @BeforeEach
+    void setup() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        sessionFactory.getCache().evictQueryRegion(Meal.QUERY_CACHE_REGION);
+        statisticsEnabled = sessionFactory.getStatistics().isStatisticsEnabled();
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void restoreStatistics() {
+        sessionFactory.getStatistics().setStatisticsEnabled(statisticsEnabled);
+    }
+
+    @Test
+    void delete() {
+        cacheQueries();
+        service.delete(MEAL1_ID, USER_ID);
+        MEAL_MATCHER.assertMatch(service.getAll(USER_ID), meal7, meal6, meal5, meal4, meal3, meal2);
+        MEAL_MATCHER.assertMatch(service.getBetweenInclusive(DAY, DAY, USER_ID), meal3, meal2);
+    }
+
+    @Test
+    void deleteUser() {
+        cacheQueries();
+        userService.delete(USER_ID);
+        Assertions.assertTrue(service.getAll(USER_ID).isEmpty());
+        Assertions.assertTrue(service.getBetweenInclusive(DAY, DAY, USER_ID).isEmpty());
+    }
+
+    @Test
+    void purge() {
+        cacheQueries();
+        service.purge(DAY.plusDays(1));
+        MEAL_MATCHER.assertMatch(service.getAll(USER_ID), meal7, meal6, meal5, meal4);
+        Assertions.assertTrue(service.getBetweenInclusive(DAY, DAY, USER_ID).isEmpty());
+    }
+
+    @Test
+    void createAll() {
+        cacheQueries();
+        Meal created = service.createAll(List.of(new Meal(null, meal1.getDateTime().plusHours(1), "Перекус", 100)), USER_ID)
+                .getCreated().get(0);
+        MEAL_MATCHER.assertMatch(service.getAll(USER_ID), meal7, meal6, meal5, meal4, meal3, meal2, created, meal1);
+        MEAL_MATCHER.assertMatch(service.getBetweenInclusive(DAY, DAY, USER_ID), meal3, meal2, created, meal1);
+    }
+
+    // the second reads are served by the query cache
+    private void cacheQueries() {
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        for (int i = 0; i < 2; i++) {
+            MEAL_MATCHER.assertMatch(service.getAll(USER_ID), meals);
+            MEAL_MATCHER.assertMatch(service.getBetweenInclusive(DAY, DAY, USER_ID), meal3, meal2, meal1);
+        }
+        Assertions.assertEquals(2, statistics.getQueryCacheHitCount());
+    }
+}
@@ -6,17 +6,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.dao.DataAccessException;
 import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.BatchResultTo;
+import ru.javawebinar.topjava.to.ImportResultTo;
+import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.to.PageTo;
 import ru.javawebinar.topjava.util.exception.NotFoundException;
 
 import javax.validation.ConstraintViolationException;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 
 import static java.time.LocalDateTime.of;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static ru.javawebinar.topjava.MealTestData.*;
 import static ru.javawebinar.topjava.UserTestData.ADMIN_ID;
 import static ru.javawebinar.topjava.UserTestData.USER_ID;
+import static ru.javawebinar.topjava.UserTestData.user;
+import static ru.javawebinar.topjava.util.MealsUtil.createTo;
+import static ru.javawebinar.topjava.util.MealsUtil.getTos;
 
 public abstract class AbstractMealServiceTest extends AbstractServiceTest {
 
@@ -27,6 +38,7 @@ public abstract class AbstractMealServiceTest extends AbstractServiceTest {
     void delete() {
         service.delete(MEAL1_ID, USER_ID);
         assertThrows(NotFoundException.class, () -> service.get(MEAL1_ID, USER_ID));
+        Assertions.assertEquals(0, service.checkDailyTotals());
     }
 
     @Test
@@ -47,6 +59,68 @@ public abstract class AbstractMealServiceTest extends AbstractServiceTest {
         newMeal.setId(newId);
         MEAL_MATCHER.assertMatch(created, newMeal);
         MEAL_MATCHER.assertMatch(service.get(newId, USER_ID), newMeal);
+        Assertions.assertEquals(0, service.checkDailyTotals());
+    }
+
+    // writers of the same day recalculate its total one after another
+    @Test
+    void createConcurrently() throws Exception {
+        int writers = 4;
+        CyclicBarrier start = new CyclicBarrier(writers);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int hour = writer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int minute = 0; minute < 10; minute++) {
+                        service.create(new Meal(null, of(2020, Month.FEBRUARY, 1, hour, minute), "Перекус", 100), USER_ID);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(writers * 10, service.getBetweenInclusive(
+                LocalDate.of(2020, Month.FEBRUARY, 1), LocalDate.of(2020, Month.FEBRUARY, 1), USER_ID).size());
+        Assertions.assertEquals(0, service.checkDailyTotals());
+    }
+
+    @Test
+    void createAllConcurrently() throws Exception {
+        int writers = 4;
+        List<Meal> batch = new ArrayList<>();
+        for (int minute = 0; minute < 10; minute++) {
+            batch.add(new Meal(null, of(2020, Month.FEBRUARY, 1, 10, minute), "Перекус", 100));
+        }
+        CyclicBarrier start = new CyclicBarrier(writers);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        int errors = 0;
+        try {
+            List<Future<BatchResultTo<Meal>>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return service.createAll(batch.stream()
+                            .map(meal -> new Meal(null, meal.getDateTime(), meal.getDescription(), meal.getCalories()))
+                            .toList(), USER_ID);
+                }));
+            }
+            for (Future<BatchResultTo<Meal>> future : futures) {
+                errors += future.get(30, TimeUnit.SECONDS).getErrors().size();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals((writers - 1) * batch.size(), errors);
+        Assertions.assertEquals(batch.size(), service.getBetweenInclusive(
+                LocalDate.of(2020, Month.FEBRUARY, 1), LocalDate.of(2020, Month.FEBRUARY, 1), USER_ID).size());
+        Assertions.assertEquals(0, service.checkDailyTotals());
     }
 
     @Test
@@ -76,6 +150,17 @@ public abstract class AbstractMealServiceTest extends AbstractServiceTest {
         Meal updated = getUpdated();
         service.update(updated, USER_ID);
         MEAL_MATCHER.assertMatch(service.get(MEAL1_ID, USER_ID), getUpdated());
+        Assertions.assertEquals(0, service.checkDailyTotals());
+    }
+
+    @Test
+    void updateToAnotherDay() {
+        Meal updated = new Meal(meal7.id(), meal7.getDateTime().plusDays(1), meal7.getDescription(), meal7.getCalories());
+        service.update(updated, USER_ID);
+        TO_MATCHER.assertMatch(service.getFilteredTos(null, null, null, null, user.getCaloriesPerDay(), USER_ID),
+                createTo(updated, false), createTo(meal6, false), createTo(meal5, false), createTo(meal4, false),
+                createTo(meal3, false), createTo(meal2, false), createTo(meal1, false));
+        Assertions.assertEquals(0, service.checkDailyTotals());
     }
 
     @Test
@@ -103,6 +188,122 @@ public abstract class AbstractMealServiceTest extends AbstractServiceTest {
         MEAL_MATCHER.assertMatch(service.getBetweenInclusive(null, null, USER_ID), meals);
     }
 
+    @Test
+    void getFilteredTos() {
+        TO_MATCHER.assertMatch(service.getFilteredTos(
+                        LocalDate.of(2020, Month.JANUARY, 30), LocalTime.of(7, 0),
+                        LocalDate.of(2020, Month.JANUARY, 31), LocalTime.of(11, 0), user.getCaloriesPerDay(), USER_ID),
+                createTo(meal5, true), createTo(meal1, false));
+    }
+
+    @Test
+    void getFilteredTosPage() {
+        List<MealTo> tos = getTos(meals, user.getCaloriesPerDay());
+        PageTo<MealTo> first = service.getFilteredTosPage(null, null, null, null, null, 3, user.getCaloriesPerDay(), USER_ID);
+        TO_MATCHER.assertMatch(first.getContent(), tos.subList(0, 3));
+        PageTo<MealTo> second = service.getFilteredTosPage(null, null, null, null, first.getNext(), 3, user.getCaloriesPerDay(), USER_ID);
+        TO_MATCHER.assertMatch(second.getContent(), tos.subList(3, 6));
+        PageTo<MealTo> last = service.getFilteredTosPage(null, null, null, null, second.getNext(), 3, user.getCaloriesPerDay(), USER_ID);
+        TO_MATCHER.assertMatch(last.getContent(), tos.subList(6, 7));
+        Assertions.assertNull(last.getNext());
+    }
+
+    @Test
+    void getFilteredTosPageLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getFilteredTosPage(null, null, null, null, null, 0, user.getCaloriesPerDay(), USER_ID));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getFilteredTosPage(null, null, null, null, "not a cursor", 3, user.getCaloriesPerDay(), USER_ID));
+    }
+
+    @Test
+    void getBetweenInclusivePage() {
+        LocalDate date = LocalDate.of(2020, Month.JANUARY, 30);
+        PageTo<Meal> first = service.getBetweenInclusivePage(date, date, null, 2, USER_ID);
+        MEAL_MATCHER.assertMatch(first.getContent(), meal3, meal2);
+        PageTo<Meal> last = service.getBetweenInclusivePage(date, date, first.getNext(), 2, USER_ID);
+        MEAL_MATCHER.assertMatch(last.getContent(), meal1);
+        Assertions.assertNull(last.getNext());
+    }
+
+    @Test
+    void getFilteredTosWithNulls() {
+        TO_MATCHER.assertMatch(service.getFilteredTos(null, null, null, null, user.getCaloriesPerDay(), USER_ID),
+                getTos(meals, user.getCaloriesPerDay()));
+    }
+
+    @Test
+    void createAll() {
+        Meal first = getNew();
+        Meal second = new Meal(null, of(2020, Month.JANUARY, 31, 23, 0), "Поздний ужин", 10);
+        List<Meal> batch = List.of(first, new Meal(null, of(2020, Month.FEBRUARY, 2, 10, 0), "Завтрак", 5),
+                second, new Meal(null, first.getDateTime(), "Повтор", 100), new Meal(MEAL1_ID, meal1.getDateTime(), "Не новая", 100));
+        BatchResultTo<Meal> result = service.createAll(batch, USER_ID);
+
+        Assertions.assertEquals(List.of(1, 3, 4), result.getErrors().stream().map(BatchResultTo.RowError::getRow).toList());
+        MEAL_MATCHER.assertMatch(result.getCreated(), first, second);
+        MEAL_MATCHER.assertMatch(service.getAll(USER_ID), first, second, meal7, meal6, meal5, meal4, meal3, meal2, meal1);
+        Assertions.assertEquals(0, service.checkDailyTotals());
+    }
+
+    @Test
+    void createAllExisting() {
+        Meal first = getNew();
+        Meal second = new Meal(null, of(2020, Month.FEBRUARY, 2, 10, 0), "Завтрак", 500);
+        BatchResultTo<Meal> result = service.createAll(
+                List.of(first, new Meal(null, meal1.getDateTime(), "Повтор из БД", 100), second), USER_ID);
+
+        Assertions.assertEquals(List.of(1), result.getErrors().stream().map(BatchResultTo.RowError::getRow).toList());
+        MEAL_MATCHER.assertMatch(result.getCreated(), first, second);
+        MEAL_MATCHER.assertMatch(service.getAll(USER_ID), second, first, meal7, meal6, meal5, meal4, meal3, meal2, meal1);
+        Assertions.assertEquals(0, service.checkDailyTotals());
+    }
+
+    @Test
+    void importMeals() {
+        Meal first = getNew();
+        List<Meal> upload = new ArrayList<>();
+        upload.add(first);
+        upload.add(new Meal(null, meal1.getDateTime(), "Повтор из БД", 100));
+        upload.add(new Meal(null, of(2020, Month.FEBRUARY, 2, 10, 0), "Завтрак", 5));
+        upload.add(null);
+        // next chunk, duplicate of the committed first chunk
+        for (int i = 0; i < MealService.IMPORT_CHUNK_SIZE; i++) {
+            upload.add(new Meal(null, of(2021, Month.JANUARY, 1, 0, 0).plusMinutes(i), "Импорт " + i, 10));
+        }
+        upload.add(new Meal(null, first.getDateTime(), "Повтор", 100));
+        ImportResultTo result = service.importMeals(upload.iterator(), USER_ID);
+
+        Assertions.assertEquals(1 + MealService.IMPORT_CHUNK_SIZE, result.getInserted());
+        Assertions.assertEquals(2, result.getDuplicates());
+        Assertions.assertEquals(2, result.getInvalid());
+        Assertions.assertEquals(List.of(2, 3), result.getErrors().stream().map(BatchResultTo.RowError::getRow).toList());
+        Assertions.assertEquals(meals.size() + 1 + MealService.IMPORT_CHUNK_SIZE, service.getAll(USER_ID).size());
+        Assertions.assertEquals(0, service.checkDailyTotals());
+    }
+
+    @Test
+    void getAllTos() {
+        TO_MATCHER.assertMatch(service.getAllTos(USER_ID, user.getCaloriesPerDay()), getTos(meals, user.getCaloriesPerDay()));
+        service.delete(meal7.id(), USER_ID);
+        TO_MATCHER.assertMatch(service.getAllTos(USER_ID, user.getCaloriesPerDay()),
+                getTos(List.of(meal6, meal5, meal4, meal3, meal2, meal1), user.getCaloriesPerDay()));
+    }
+
+    @Test
+    void purge() {
+        Assertions.assertEquals(3, service.purge(LocalDate.of(2020, Month.JANUARY, 31)));
+        MEAL_MATCHER.assertMatch(service.getAll(USER_ID), meal7, meal6, meal5, meal4);
+        MEAL_MATCHER.assertMatch(service.getAll(ADMIN_ID), adminMeal2, adminMeal1);
+        Assertions.assertEquals(0, service.checkDailyTotals());
+    }
+
+    @Test
+    void rebuildDailyTotals() {
+        Assertions.assertEquals(3, service.rebuildDailyTotals());
+        Assertions.assertEquals(0, service.checkDailyTotals());
+    }
+
     @Test
     void createWithException() throws Exception {
         validateRootCause(ConstraintViolationException.class, () -> service.create(new Meal(null, of(2015, Month.JUNE, 1, 18, 0), "  ", 300), USER_ID));
@@ -1,6 +1,8 @@
 package ru.javawebinar.topjava.service;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlConfig;
@@ -21,6 +23,15 @@ import static ru.javawebinar.topjava.util.ValidationUtil.getRootCause;
 @ExtendWith(TimingExtension.class)
 public abstract class AbstractServiceTest {
 
+    @Autowired
+    private MealToCache mealToCache;
+
+    // populateDB.sql restores DB behind the services
+    @BeforeEach
+    void clearMealToCache() {
+        mealToCache.clear();
+    }
+
     //  Check root cause in JUnit: https://github.com/junit-team/junit4/pull/778
     protected <T extends Throwable> void validateRootCause(Class<T> rootExceptionClass, Runnable runnable) {
         assertThrows(rootExceptionClass, () -> {
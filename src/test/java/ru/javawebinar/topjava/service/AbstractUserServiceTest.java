@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import ru.javawebinar.topjava.model.Role;
 import ru.javawebinar.topjava.model.User;
+import ru.javawebinar.topjava.to.UserTo;
 import ru.javawebinar.topjava.util.exception.NotFoundException;
 
 import javax.validation.ConstraintViolationException;
@@ -71,6 +72,34 @@ public abstract class AbstractUserServiceTest extends AbstractServiceTest {
         USER_MATCHER.assertMatch(service.get(USER_ID), getUpdated());
     }
 
+    @Test
+    void updateNotChanged() {
+        service.update(new User(admin));
+        USER_MATCHER.assertMatch(service.get(ADMIN_ID), admin);
+    }
+
+    @Test
+    void updateTo() {
+        service.update(new UserTo(USER_ID, "newName", "NEW@gmail.com", "newPassword", 1500));
+        User updated = new User(user);
+        updated.setName("newName");
+        updated.setEmail("new@gmail.com");
+        updated.setPassword("newPassword");
+        updated.setCaloriesPerDay(1500);
+        USER_MATCHER.assertMatch(service.get(USER_ID), updated);
+    }
+
+    @Test
+    void updateToNotFound() {
+        assertThrows(NotFoundException.class, () -> service.update(new UserTo(NOT_FOUND, "newName", "new@gmail.com", "newPassword", 1500)));
+    }
+
+    @Test
+    void updateToWithException() throws Exception {
+        validateRootCause(ConstraintViolationException.class, () -> service.update(new UserTo(USER_ID, "  ", "new@gmail.com", "newPassword", 1500)));
+        validateRootCause(ConstraintViolationException.class, () -> service.update(new UserTo(USER_ID, "newName", "new@gmail.com", "newPassword", 10001)));
+    }
+
     @Test
     void getAll() {
         List<User> all = service.getAll();
@@ -93,4 +122,9 @@ public abstract class AbstractUserServiceTest extends AbstractServiceTest {
         service.enable(USER_ID, true);
         assertTrue(service.get(USER_ID).isEnabled());
     }
-}
\ No newline at end of file
+
+    @Test
+    void enableNotFound() {
+        assertThrows(NotFoundException.class, () -> service.enable(NOT_FOUND, false));
+    }
+}
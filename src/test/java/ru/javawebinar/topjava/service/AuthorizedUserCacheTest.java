@@ -0,0 +1,73 @@
+package ru.javawebinar.topjava.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import ru.javawebinar.topjava.AuthorizedUser;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ru.javawebinar.topjava.UserTestData.*;
+
+class AuthorizedUserCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AuthorizedUserCache cache = new AuthorizedUserCache(2, Duration.ofNanos(100), clock::get);
+
+    private final AuthorizedUser authUser = new AuthorizedUser(user);
+    private final AuthorizedUser authAdmin = new AuthorizedUser(admin);
+
+    @Test
+    void get() {
+        Assertions.assertSame(authUser, cache.get(user.getEmail(), user.getPassword(), () -> authUser));
+        Assertions.assertSame(authUser, cache.get(user.getEmail(), user.getPassword(), Assertions::fail));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    void getOtherPassword() {
+        cache.get(user.getEmail(), user.getPassword(), () -> authUser);
+        Assertions.assertThrows(BadCredentialsException.class, () -> cache.get(user.getEmail(), "wrong", () -> {
+            throw new BadCredentialsException("Bad credentials");
+        }));
+        Assertions.assertSame(authUser, cache.get(user.getEmail(), user.getPassword(), Assertions::fail));
+    }
+
+    @Test
+    void evict() {
+        cache.get(user.getEmail(), user.getPassword(), () -> authUser);
+        cache.get(admin.getEmail(), admin.getPassword(), () -> authAdmin);
+        cache.evict(USER_ID);
+        Assertions.assertEquals(1, cache.getCachedUsers());
+        Assertions.assertSame(authAdmin, cache.get(admin.getEmail(), admin.getPassword(), Assertions::fail));
+    }
+
+    @Test
+    void evictDuringAuthentication() {
+        cache.get(user.getEmail(), user.getPassword(), () -> {
+            cache.evict(USER_ID);
+            return authUser;
+        });
+        Assertions.assertEquals(0, cache.getCachedUsers());
+    }
+
+    @Test
+    void evictOverflow() {
+        cache.get(user.getEmail(), user.getPassword(), () -> authUser);
+        cache.get(admin.getEmail(), admin.getPassword(), () -> authAdmin);
+        cache.get(guest.getEmail(), guest.getPassword(), () -> new AuthorizedUser(guest));
+        Assertions.assertEquals(2, cache.getCachedUsers());
+        Assertions.assertSame(authAdmin, cache.get(admin.getEmail(), admin.getPassword(), Assertions::fail));
+    }
+
+    @Test
+    void evictExpired() {
+        cache.get(user.getEmail(), user.getPassword(), () -> authUser);
+        clock.addAndGet(100);
+        cache.get(admin.getEmail(), admin.getPassword(), () -> authAdmin);
+        Assertions.assertEquals(1, cache.getCachedUsers());
+    }
+}
@@ -0,0 +1,131 @@
+package ru.javawebinar.topjava.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.MealTo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.time.LocalDateTime.of;
+import static ru.javawebinar.topjava.MealTestData.*;
+import static ru.javawebinar.topjava.UserTestData.ADMIN_ID;
+import static ru.javawebinar.topjava.UserTestData.USER_ID;
+import static ru.javawebinar.topjava.util.MealsUtil.getTos;
+
+class MealToCacheTest {
+    private static final int CALORIES_PER_DAY = 2000;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final MealToCache cache = new MealToCache(10, Duration.ofNanos(100), clock::get);
+
+    private final List<Meal> userMeals = new ArrayList<>(meals);
+
+    @Test
+    void get() {
+        TO_MATCHER.assertMatch(cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals), getTos(meals, CALORIES_PER_DAY));
+        TO_MATCHER.assertMatch(cache.get(USER_ID, CALORIES_PER_DAY, Assertions::fail), getTos(meals, CALORIES_PER_DAY));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void add() {
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        Meal created = new Meal(MEAL1_ID + 100, of(2020, 1, 30, 15, 0), "Полдник", 1);
+        cache.add(USER_ID, created);
+        userMeals.add(5, created);
+        assertCached();
+    }
+
+    @Test
+    void update() {
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        Meal updated = new Meal(meal7.id(), meal7.getDateTime().plusDays(1), meal7.getDescription(), meal7.getCalories());
+        cache.update(USER_ID, updated);
+        userMeals.set(0, updated);
+        assertCached();
+    }
+
+    @Test
+    void overlappedWritesEvict() {
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        cache.startWrite(USER_ID);
+        cache.startWrite(USER_ID);
+        cache.update(USER_ID, new Meal(meal7.id(), meal7.getDateTime(), "Ужин B", meal7.getCalories()));
+        cache.finishWrite(USER_ID);
+        Assertions.assertEquals(0, cache.getCachedUsers());
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        cache.update(USER_ID, new Meal(meal7.id(), meal7.getDateTime(), "Ужин A", meal7.getCalories()));
+        cache.finishWrite(USER_ID);
+        Assertions.assertEquals(0, cache.getCachedUsers());
+
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        cache.startWrite(USER_ID);
+        cache.remove(USER_ID, meal2.id());
+        cache.finishWrite(USER_ID);
+        userMeals.remove(meal2);
+        assertCached();
+    }
+
+    @Test
+    void updateOtherDay() {
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        Meal moved = new Meal(meal7.id(), meal3.getDateTime().minusHours(1), meal7.getDescription(), meal7.getCalories());
+        cache.update(USER_ID, moved);
+        userMeals.remove(meal7);
+        userMeals.add(4, moved);
+        assertCached();
+    }
+
+    @Test
+    void addKeepsOtherDays() {
+        List<MealTo> before = cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        cache.add(USER_ID, new Meal(MEAL1_ID + 100, of(2020, 1, 30, 15, 0), "Полдник", 1));
+        List<MealTo> after = cache.get(USER_ID, CALORIES_PER_DAY, Assertions::fail);
+        for (int index = 0; index < 4; index++) {
+            Assertions.assertSame(before.get(index), after.get(index));
+        }
+    }
+
+    @Test
+    void remove() {
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        cache.remove(USER_ID, meal2.id());
+        userMeals.remove(meal2);
+        assertCached();
+    }
+
+    @Test
+    void updateCaloriesPerDay() {
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        cache.updateCaloriesPerDay(USER_ID, 1000);
+        TO_MATCHER.assertMatch(cache.get(USER_ID, 1000, Assertions::fail), getTos(meals, 1000));
+    }
+
+    @Test
+    void evictOverflow() {
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        cache.get(ADMIN_ID, CALORIES_PER_DAY, () -> List.of(adminMeal2, adminMeal1));
+        cache.get(USER_ID + 100, CALORIES_PER_DAY, () -> List.of(adminMeal2, adminMeal1));
+        Assertions.assertEquals(2, cache.getCachedUsers());
+        Assertions.assertEquals(4, cache.getCachedMeals());
+    }
+
+    @Test
+    void evictIdle() {
+        cache.get(USER_ID, CALORIES_PER_DAY, () -> userMeals);
+        clock.addAndGet(100);
+        cache.get(ADMIN_ID, CALORIES_PER_DAY, () -> List.of(adminMeal2, adminMeal1));
+        Assertions.assertEquals(1, cache.getCachedUsers());
+        Assertions.assertEquals(2, cache.getCachedMeals());
+    }
+
+    private void assertCached() {
+        TO_MATCHER.assertMatch(cache.get(USER_ID, CALORIES_PER_DAY, Assertions::fail), getTos(userMeals, CALORIES_PER_DAY));
+        Assertions.assertEquals(userMeals.size(), cache.getCachedMeals());
+    }
+}
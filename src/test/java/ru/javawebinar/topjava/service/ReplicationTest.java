@@ -0,0 +1,91 @@
+package ru.javawebinar.topjava.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.ClassUtils;
+import ru.javawebinar.topjava.Profiles;
+import ru.javawebinar.topjava.model.Meal;
+import ru.javawebinar.topjava.to.DataSourceStatsTo;
+import ru.javawebinar.topjava.to.MealTo;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static ru.javawebinar.topjava.MealTestData.*;
+import static ru.javawebinar.topjava.UserTestData.ADMIN_ID;
+import static ru.javawebinar.topjava.UserTestData.GUEST_ID;
+import static ru.javawebinar.topjava.UserTestData.USER_ID;
+
+// hsqldb replica is a separate DB without replication: changes are visible on primary only
+@EnabledIf("hsqldbPresent")
+@ActiveProfiles(profiles = {Profiles.HSQL_DB, Profiles.REPLICATION, Profiles.DATAJPA}, inheritProfiles = false)
+class ReplicationTest extends AbstractServiceTest {
+
+    @Autowired
+    private MealService service;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private DataSourceStatsService statsService;
+
+    // no transaction: primary, no read-your-writes window
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    static boolean hsqldbPresent() {
+        return ClassUtils.isPresent("org.hsqldb.jdbcDriver", null);
+    }
+
+    // windows outlive the test: guest is never written, admin is written by readYourWritesOfChangedUser only
+    @Test
+    void readFromReplica() {
+        insertOnPrimary(getNew(), GUEST_ID);
+        MEAL_MATCHER.assertMatch(service.getAll(GUEST_ID));
+    }
+
+    @Test
+    void readYourWrites() {
+        Meal created = service.create(getNew(), USER_ID);
+        MEAL_MATCHER.assertMatch(service.get(created.id(), USER_ID), created);
+    }
+
+    @Test
+    void readYourWritesOfChangedUser() {
+        insertOnPrimary(getNew(), ADMIN_ID);
+        service.create(getNew(), USER_ID);
+        MEAL_MATCHER.assertMatch(service.getAll(ADMIN_ID), adminMeal2, adminMeal1);
+
+        // written by whoever is authenticated, the window is of the changed user
+        userService.enable(ADMIN_ID, true);
+        Assertions.assertEquals(3, service.getAll(ADMIN_ID).size());
+    }
+
+    @Test
+    void cachedReadsFromPrimary() {
+        jdbcTemplate.update("UPDATE users SET name=? WHERE id=?", "Primary", USER_ID);
+        Assertions.assertEquals("Primary", userService.get(USER_ID).getName());
+
+        insertOnPrimary(getNew(), USER_ID);
+        List<MealTo> tos = service.getAllTos(USER_ID, 2000);
+        Assertions.assertEquals(meals.size() + 1, tos.size());
+    }
+
+    @Test
+    void poolStats() {
+        DataSourceStatsTo stats = statsService.getStats();
+        Assertions.assertTrue(stats.getMaxActive() > 0);
+        Assertions.assertEquals(1, stats.getReplicas().size());
+        Assertions.assertTrue(stats.getReplicas().get(0).getMaxActive() > 0);
+    }
+
+    private void insertOnPrimary(Meal meal, int userId) {
+        jdbcTemplate.update("INSERT INTO meal (date_time, description, calories, user_id) VALUES (?, ?, ?, ?)",
+                Timestamp.valueOf(meal.getDateTime()), meal.getDescription(), meal.getCalories(), userId);
+    }
+}
@@ -0,0 +1,127 @@
+package ru.javawebinar.topjava.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.javawebinar.topjava.model.User;
+import ru.javawebinar.topjava.repository.inmemory.InMemoryUserRepository;
+import ru.javawebinar.topjava.util.exception.NotFoundException;
+
+import java.util.List;
+
+import static ru.javawebinar.topjava.UserTestData.*;
+
+@SpringJUnitConfig(locations = {"classpath:spring/inmemory-cache.xml"})
+class UserServiceCacheTest {
+
+    @Autowired
+    private UserService service;
+
+    @Autowired
+    private InMemoryUserRepository repository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Cache userCache;
+    private Cache usersCache;
+
+    @BeforeEach
+    void setup() {
+        repository.init();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        userCache = cacheManager.getCache(UserService.USER_CACHE);
+        usersCache = cacheManager.getCache(UserService.USERS_CACHE);
+    }
+
+    @Test
+    void updateEvictsChanged() {
+        service.get(USER_ID);
+        service.get(ADMIN_ID);
+        service.update(getUpdated());
+        Assertions.assertNull(userCache.get(USER_ID));
+        Assertions.assertNotNull(userCache.get(ADMIN_ID));
+        USER_MATCHER.assertMatch(service.get(USER_ID), getUpdated());
+    }
+
+    @Test
+    void deleteEvictsChanged() {
+        service.get(USER_ID);
+        service.get(ADMIN_ID);
+        service.delete(USER_ID);
+        Assertions.assertNull(userCache.get(USER_ID));
+        Assertions.assertNotNull(userCache.get(ADMIN_ID));
+    }
+
+    @Test
+    void getByEmailAfterEmailChange() {
+        USER_MATCHER.assertMatch(service.getByEmail(user.getEmail()), user);
+        service.update(getUpdated());
+        Assertions.assertThrows(NotFoundException.class, () -> service.getByEmail(user.getEmail()));
+        USER_MATCHER.assertMatch(service.getByEmail(getUpdated().getEmail()), getUpdated());
+    }
+
+    @Test
+    void getAllPatched() {
+        service.getAll();
+        User created = service.create(getNew());
+        assertAllCached();
+        Assertions.assertSame(created, userCache.get(created.id()).get());
+
+        User updated = new User(created);
+        updated.setName("Aaa");
+        service.update(updated);
+        assertAllCached();
+
+        service.enable(created.id(), true);
+        assertAllCached();
+        Assertions.assertTrue(service.get(created.id()).isEnabled());
+
+        service.delete(created.id());
+        assertAllCached();
+    }
+
+    @Test
+    void changedAfterCommit() {
+        service.get(USER_ID);
+        service.getAll();
+        inTransaction(() -> service.update(getUpdated()), TransactionSynchronization.STATUS_COMMITTED);
+        Assertions.assertNull(userCache.get(USER_ID));
+        assertAllCached();
+    }
+
+    @Test
+    void notChangedAfterRollback() {
+        User cached = service.get(USER_ID);
+        List<User> all = service.getAll();
+        inTransaction(() -> service.update(getUpdated()), TransactionSynchronization.STATUS_ROLLED_BACK);
+        Assertions.assertSame(cached, userCache.get(USER_ID).get());
+        Assertions.assertSame(all, usersCache.get(SimpleKey.EMPTY).get());
+    }
+
+    // in-memory repository has no transactions: only synchronizations of the caches are completed
+    private static void inTransaction(Runnable write, int status) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            write.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+            }
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void assertAllCached() {
+        USER_MATCHER.assertMatch(usersCache.get(SimpleKey.EMPTY, List.class), repository.getAll());
+    }
+}
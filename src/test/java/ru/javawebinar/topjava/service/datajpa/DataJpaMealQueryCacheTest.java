@@ -0,0 +1,10 @@
+package ru.javawebinar.topjava.service.datajpa;
+
+import org.springframework.test.context.ActiveProfiles;
+import ru.javawebinar.topjava.service.AbstractMealQueryCacheTest;
+
+import static ru.javawebinar.topjava.Profiles.DATAJPA;
+
+@ActiveProfiles({DATAJPA, AbstractMealQueryCacheTest.HIBERNATE_CACHE})
+class DataJpaMealQueryCacheTest extends AbstractMealQueryCacheTest {
+}
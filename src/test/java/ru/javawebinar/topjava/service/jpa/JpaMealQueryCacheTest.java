@@ -0,0 +1,10 @@
+package ru.javawebinar.topjava.service.jpa;
+
+import org.springframework.test.context.ActiveProfiles;
+import ru.javawebinar.topjava.service.AbstractMealQueryCacheTest;
+
+import static ru.javawebinar.topjava.Profiles.JPA;
+
+@ActiveProfiles({JPA, AbstractMealQueryCacheTest.HIBERNATE_CACHE})
+class JpaMealQueryCacheTest extends AbstractMealQueryCacheTest {
+}
@@ -1,10 +1,10 @@
 package ru.javawebinar.topjava.service.jpa;
 
 import org.springframework.test.context.ActiveProfiles;
-import ru.javawebinar.topjava.service.AbstractMealServiceTest;
+import ru.javawebinar.topjava.service.AbstractJpaMealServiceTest;
 
 import static ru.javawebinar.topjava.Profiles.JPA;
 
 @ActiveProfiles(JPA)
-class JpaMealServiceTest extends AbstractMealServiceTest {
+class JpaMealServiceTest extends AbstractJpaMealServiceTest {
 }
\ No newline at end of file
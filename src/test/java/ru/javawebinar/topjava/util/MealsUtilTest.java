@@ -0,0 +1,83 @@
+package ru.javawebinar.topjava.util;
+
+import org.junit.jupiter.api.Test;
+import ru.javawebinar.topjava.model.Meal;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static ru.javawebinar.topjava.MealTestData.*;
+import static ru.javawebinar.topjava.UserTestData.user;
+
+class MealsUtilTest {
+
+    @Test
+    void getTos() {
+        TO_MATCHER.assertMatch(MealsUtil.getTos(meals, user.getCaloriesPerDay()),
+                MealsUtil.filteredByStreams(meals, null, null, user.getCaloriesPerDay()));
+    }
+
+    @Test
+    void getFilteredTos() {
+        TO_MATCHER.assertMatch(MealsUtil.getFilteredTos(meals, user.getCaloriesPerDay(), LocalTime.of(7, 0), LocalTime.of(11, 0)),
+                MealsUtil.createTo(meal5, true), MealsUtil.createTo(meal1, false));
+    }
+
+    @Test
+    void getFilteredTosBounds() {
+        List<LocalTime> bounds = new ArrayList<>();
+        bounds.add(null);
+        meals.forEach(meal -> bounds.add(meal.getTime()));
+        bounds.add(LocalTime.MAX);
+        for (LocalTime startTime : bounds) {
+            for (LocalTime endTime : bounds) {
+                TO_MATCHER.assertMatch(MealsUtil.getFilteredTos(meals, user.getCaloriesPerDay(), startTime, endTime),
+                        MealsUtil.filteredByStreams(meals, startTime, endTime, user.getCaloriesPerDay()));
+            }
+        }
+    }
+
+    @Test
+    void getTosManyDays() {
+        List<Meal> manyDays = manyDays();
+        TO_MATCHER.assertMatch(MealsUtil.getFilteredTos(manyDays, 1000, LocalTime.of(6, 0), LocalTime.of(18, 0)),
+                MealsUtil.filteredByStreams(manyDays, LocalTime.of(6, 0), LocalTime.of(18, 0), 1000));
+    }
+
+    @Test
+    void getTosParallel() {
+        List<Meal> manyDays = manyDays();
+        Collections.reverse(manyDays);
+        TO_MATCHER.assertMatch(MealsUtil.filterByTimeParallel(manyDays, 1000, null, null),
+                MealsUtil.filteredByStreams(manyDays, null, null, 1000));
+        TO_MATCHER.assertMatch(MealsUtil.filterByTimeParallel(manyDays, 1000, LocalTime.of(6, 0), LocalTime.of(18, 0)),
+                MealsUtil.filteredByStreams(manyDays, LocalTime.of(6, 0), LocalTime.of(18, 0), 1000));
+    }
+
+    @Test
+    void getTosParallelSingleDay() {
+        List<Meal> singleDay = new ArrayList<>();
+        LocalDateTime dateTime = LocalDateTime.of(2020, Month.JANUARY, 31, 23, 59);
+        for (int i = 0; i < 20_000; i++) {
+            singleDay.add(new Meal(i, dateTime, "Meal " + i, 1));
+            dateTime = dateTime.minusNanos(1000);
+        }
+        TO_MATCHER.assertMatch(MealsUtil.filterByTimeParallel(singleDay, 10_000, null, null),
+                MealsUtil.filteredByStreams(singleDay, null, null, 10_000));
+    }
+
+    // ORDERED dateTime asc
+    private static List<Meal> manyDays() {
+        List<Meal> manyDays = new ArrayList<>();
+        LocalDateTime dateTime = LocalDateTime.of(1, Month.JANUARY, 1, 10, 0, 0, 1);
+        for (int i = 0; i < 100_000; i++) {
+            manyDays.add(new Meal(i, dateTime, "Meal " + i, 10 + i % 1500));
+            dateTime = dateTime.plusHours(7).plusNanos(1);
+        }
+        return manyDays;
+    }
+}
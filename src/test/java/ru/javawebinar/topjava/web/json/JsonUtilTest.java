@@ -1,5 +1,6 @@
 package ru.javawebinar.topjava.web.json;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,6 +9,7 @@ import ru.javawebinar.topjava.model.Meal;
 import java.util.List;
 
 import static ru.javawebinar.topjava.MealTestData.*;
+import static ru.javawebinar.topjava.UserTestData.admin;
 
 class JsonUtilTest {
     private static final Logger log = LoggerFactory.getLogger(JsonUtilTest.class);
@@ -20,6 +22,14 @@ class JsonUtilTest {
         MEAL_MATCHER.assertMatch(meal, adminMeal1);
     }
 
+    // model is enhanced by hibernate-enhance-maven-plugin in the build
+    @Test
+    void writeEnhancedEntity() {
+        String json = JsonUtil.writeValue(List.of(admin, adminMeal1));
+        log.info(json);
+        Assertions.assertFalse(json.contains("$$_hibernate"), json);
+    }
+
     @Test
     void readWriteValues() {
         String json = JsonUtil.writeValue(meals);
@@ -0,0 +1,82 @@
+package ru.javawebinar.topjava.web.meal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.javawebinar.topjava.web.AbstractControllerTest;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.javawebinar.topjava.TestUtil.userHttpBasic;
+import static ru.javawebinar.topjava.MealTestData.meal7;
+import static ru.javawebinar.topjava.MealTestData.meals;
+import static ru.javawebinar.topjava.UserTestData.USER_ID;
+import static ru.javawebinar.topjava.UserTestData.admin;
+import static ru.javawebinar.topjava.UserTestData.user;
+
+class AdminMealRestControllerTest extends AbstractControllerTest {
+
+    private static final String REST_URL = AdminMealRestController.REST_URL + "/daily-totals/";
+
+    @Test
+    void checkDailyTotals() throws Exception {
+        perform(MockMvcRequestBuilders.get(REST_URL + "check")
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(content().string("0"));
+    }
+
+    @Test
+    void rebuildDailyTotals() throws Exception {
+        perform(MockMvcRequestBuilders.post(REST_URL + "rebuild")
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("3"));
+    }
+
+    @Test
+    void rebuildDailyTotalsForbidden() throws Exception {
+        perform(MockMvcRequestBuilders.post(REST_URL + "rebuild")
+                .with(userHttpBasic(user)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void purge() throws Exception {
+        perform(MockMvcRequestBuilders.delete(AdminMealRestController.REST_URL)
+                .param("before", "2020-01-31")
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("3"));
+    }
+
+    @Test
+    void purgeForbidden() throws Exception {
+        perform(MockMvcRequestBuilders.delete(AdminMealRestController.REST_URL)
+                .param("before", "2020-01-31")
+                .with(userHttpBasic(user)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void exportAll() throws Exception {
+        String csv = perform(MockMvcRequestBuilders.get(AdminMealRestController.REST_URL + "/export")
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andDo(print())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = csv.split("\n");
+        Assertions.assertEquals("userId,id,dateTime,description,calories,excess", lines[0]);
+        Assertions.assertEquals(1 + meals.size() + 2, lines.length);
+        Assertions.assertTrue(lines[1].startsWith(USER_ID + "," + meal7.id() + ","));
+    }
+
+    @Test
+    void exportAllForbidden() throws Exception {
+        perform(MockMvcRequestBuilders.get(AdminMealRestController.REST_URL + "/export")
+                .with(userHttpBasic(user)))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -1,6 +1,8 @@
 package ru.javawebinar.topjava.web.meal;
 
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
@@ -8,15 +10,24 @@ import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.service.MealService;
+import ru.javawebinar.topjava.to.BatchResultTo;
+import ru.javawebinar.topjava.to.ImportResultTo;
+import ru.javawebinar.topjava.to.MealTo;
+import ru.javawebinar.topjava.to.PageTo;
 import ru.javawebinar.topjava.util.exception.NotFoundException;
 import ru.javawebinar.topjava.web.AbstractControllerTest;
+import ru.javawebinar.topjava.web.json.JacksonObjectMapper;
 import ru.javawebinar.topjava.web.json.JsonUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static ru.javawebinar.topjava.MealTestData.*;
+import static ru.javawebinar.topjava.TestUtil.userHttpBasic;
 import static ru.javawebinar.topjava.UserTestData.USER_ID;
 import static ru.javawebinar.topjava.UserTestData.user;
 import static ru.javawebinar.topjava.util.MealsUtil.createTo;
@@ -70,6 +81,44 @@ class MealRestControllerTest extends AbstractControllerTest {
         MEAL_MATCHER.assertMatch(mealService.get(newId, USER_ID), newMeal);
     }
 
+    @Test
+    void createAll() throws Exception {
+        Meal newMeal = getNew();
+        ResultActions action = perform(MockMvcRequestBuilders.post(REST_URL + "batch")
+                .with(userHttpBasic(user))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.writeValue(List.of(newMeal, new Meal(null, null, "", 5)))))
+                .andExpect(status().isOk())
+                .andDo(print());
+
+        BatchResultTo<Meal> result = JacksonObjectMapper.getMapper().readValue(
+                action.andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+        Assertions.assertEquals(1, result.getErrors().size());
+        Assertions.assertEquals(1, result.getErrors().get(0).getRow());
+        Meal created = result.getCreated().get(0);
+        newMeal.setId(created.id());
+        MEAL_MATCHER.assertMatch(result.getCreated(), newMeal);
+        MEAL_MATCHER.assertMatch(mealService.get(created.id(), USER_ID), newMeal);
+    }
+
+    @Test
+    void createAllExisting() throws Exception {
+        Meal newMeal = getNew();
+        ResultActions action = perform(MockMvcRequestBuilders.post(REST_URL + "batch")
+                .with(userHttpBasic(user))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.writeValue(List.of(new Meal(null, meal1.getDateTime(), "Повтор", 500), newMeal))))
+                .andExpect(status().isOk());
+
+        BatchResultTo<Meal> result = JacksonObjectMapper.getMapper().readValue(
+                action.andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+        Assertions.assertEquals(0, result.getErrors().get(0).getRow());
+        Assertions.assertEquals(1, result.getErrors().size());
+        newMeal.setId(result.getCreated().get(0).id());
+        MEAL_MATCHER.assertMatch(result.getCreated(), newMeal);
+        MEAL_MATCHER.assertMatch(mealService.get(MEAL1_ID, USER_ID), meal1);
+    }
+
     @Test
     void getAll() throws Exception {
         perform(MockMvcRequestBuilders.get(REST_URL))
@@ -95,4 +144,86 @@ class MealRestControllerTest extends AbstractControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(TO_MATCHER.contentJson(getTos(meals, user.getCaloriesPerDay())));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPage() throws Exception {
+        List<MealTo> tos = getTos(meals, user.getCaloriesPerDay());
+        PageTo<MealTo> first = readPage(perform(MockMvcRequestBuilders.get(REST_URL + "page")
+                .with(userHttpBasic(user))
+                .param("startDate", "2020-01-30").param("endDate", "2020-01-31")
+                .param("limit", "4"))
+                .andExpect(status().isOk())
+                .andDo(print()));
+        TO_MATCHER.assertMatch(first.getContent(), tos.subList(0, 4));
+
+        PageTo<MealTo> last = readPage(perform(MockMvcRequestBuilders.get(REST_URL + "page")
+                .with(userHttpBasic(user))
+                .param("startDate", "2020-01-30").param("endDate", "2020-01-31")
+                .param("cursor", first.getNext())
+                .param("limit", "4"))
+                .andExpect(status().isOk()));
+        TO_MATCHER.assertMatch(last.getContent(), tos.subList(4, 7));
+        Assertions.assertNull(last.getNext());
+    }
+
+    @Test
+    void exportCsv() throws Exception {
+        String csv = perform(MockMvcRequestBuilders.get(REST_URL + "export")
+                .with(userHttpBasic(user)))
+                .andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+        StringBuilder expected = new StringBuilder("id,dateTime,description,calories,excess\n");
+        getTos(meals, user.getCaloriesPerDay()).forEach(to -> expected.append(to.getId()).append(',').append(to.getDateTime())
+                .append(",\"").append(to.getDescription()).append("\",").append(to.getCalories()).append(',').append(to.isExcess()).append('\n'));
+        Assertions.assertEquals(expected.toString(), csv);
+    }
+
+    @Test
+    void exportNdJson() throws Exception {
+        String ndjson = perform(MockMvcRequestBuilders.get(REST_URL + "export")
+                .param("format", "ndjson")
+                .with(userHttpBasic(user)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        List<MealTo> exported = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            exported.add(JsonUtil.readValue(line, MealTo.class));
+        }
+        TO_MATCHER.assertMatch(exported, getTos(meals, user.getCaloriesPerDay()));
+    }
+
+    @Test
+    void importMeals() throws Exception {
+        Meal newMeal = getNew();
+        ResultActions action = perform(MockMvcRequestBuilders.post(REST_URL + "import")
+                .with(userHttpBasic(user))
+                .content(JsonUtil.writeValue(newMeal) + "\n" + JsonUtil.writeValue(meal1) + "\n{\"calories\":\"many\"}\n"))
+                .andExpect(status().isOk())
+                .andDo(print());
+
+        ImportResultTo result = JsonUtil.readValue(action.andReturn().getResponse().getContentAsString(), ImportResultTo.class);
+        Assertions.assertEquals(1, result.getInserted());
+        Assertions.assertEquals(1, result.getDuplicates());
+        Assertions.assertEquals(1, result.getInvalid());
+        Assertions.assertEquals(meals.size() + 1, mealService.getAll(USER_ID).size());
+    }
+
+    @Test
+    void importCsv() throws Exception {
+        perform(MockMvcRequestBuilders.post(REST_URL + "import")
+                .param("format", "csv")
+                .with(userHttpBasic(user))
+                .content("dateTime,description,calories\n2020-02-01T18:00,\"Ужин, поздний\",300\n"))
+                .andExpect(status().isOk());
+        List<Meal> imported = mealService.getBetweenInclusive(getNew().getDate(), getNew().getDate(), USER_ID);
+        Meal expected = new Meal(imported.get(0).getId(), getNew().getDateTime(), "Ужин, поздний", 300);
+        MEAL_MATCHER.assertMatch(imported, expected);
+    }
+
+    private static PageTo<MealTo> readPage(ResultActions action) throws Exception {
+        return JacksonObjectMapper.getMapper().readValue(action.andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+    }
+}
@@ -0,0 +1,59 @@
+package ru.javawebinar.topjava.web.stats;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.javawebinar.topjava.to.AuthenticationStatsTo;
+import ru.javawebinar.topjava.web.AbstractControllerTest;
+import ru.javawebinar.topjava.web.json.JsonUtil;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.javawebinar.topjava.TestUtil.userHttpBasic;
+import static ru.javawebinar.topjava.UserTestData.admin;
+import static ru.javawebinar.topjava.UserTestData.user;
+
+class AuthenticationStatsRestControllerTest extends AbstractControllerTest {
+
+    private static final String REST_URL = AuthenticationStatsRestController.REST_URL;
+
+    @Test
+    void get() throws Exception {
+        getStats();
+        AuthenticationStatsTo stats = getStats();
+        // the second request is authenticated by the cache
+        Assertions.assertTrue(stats.getHits() >= 1);
+        Assertions.assertTrue(stats.getCachedUsers() >= 1);
+        Assertions.assertTrue(stats.getMaxUsers() >= stats.getCachedUsers());
+    }
+
+    @Test
+    void reset() throws Exception {
+        Instant beforeReset = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        perform(MockMvcRequestBuilders.delete(REST_URL)
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isNoContent());
+
+        AuthenticationStatsTo stats = getStats();
+        Assertions.assertFalse(stats.getStartTime().isBefore(beforeReset));
+        Assertions.assertEquals(1, stats.getHits() + stats.getMisses());
+    }
+
+    @Test
+    void getForbidden() throws Exception {
+        perform(MockMvcRequestBuilders.get(REST_URL)
+                .with(userHttpBasic(user)))
+                .andExpect(status().isForbidden());
+    }
+
+    private AuthenticationStatsTo getStats() throws Exception {
+        return JsonUtil.readValue(perform(MockMvcRequestBuilders.get(REST_URL)
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andDo(print())
+                .andReturn().getResponse().getContentAsString(), AuthenticationStatsTo.class);
+    }
+}
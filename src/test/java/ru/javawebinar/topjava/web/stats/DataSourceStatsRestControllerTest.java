@@ -0,0 +1,59 @@
+package ru.javawebinar.topjava.web.stats;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.javawebinar.topjava.to.DataSourceStatsTo;
+import ru.javawebinar.topjava.web.AbstractControllerTest;
+import ru.javawebinar.topjava.web.json.JsonUtil;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.javawebinar.topjava.TestUtil.userHttpBasic;
+import static ru.javawebinar.topjava.UserTestData.admin;
+import static ru.javawebinar.topjava.UserTestData.user;
+
+class DataSourceStatsRestControllerTest extends AbstractControllerTest {
+
+    private static final String REST_URL = DataSourceStatsRestController.REST_URL;
+
+    @Test
+    void get() throws Exception {
+        DataSourceStatsTo stats = JsonUtil.readValue(perform(MockMvcRequestBuilders.get(REST_URL)
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andDo(print())
+                .andReturn().getResponse().getContentAsString(), DataSourceStatsTo.class);
+        // connection of the test transaction
+        Assertions.assertTrue(stats.getActive() >= 1);
+        Assertions.assertTrue(stats.getMaxActive() >= stats.getActive());
+        Assertions.assertEquals(stats.getAcquisitionCount(),
+                stats.getHistogram().stream().mapToLong(DataSourceStatsTo.BucketTo::getCount).sum());
+        Assertions.assertNull(stats.getHistogram().get(stats.getHistogram().size() - 1).getUpperBound());
+        Assertions.assertTrue(stats.getReplicas().isEmpty());
+    }
+
+    @Test
+    void reset() throws Exception {
+        Instant beforeReset = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        perform(MockMvcRequestBuilders.delete(REST_URL)
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isNoContent());
+
+        DataSourceStatsTo stats = JsonUtil.readValue(perform(MockMvcRequestBuilders.get(REST_URL)
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), DataSourceStatsTo.class);
+        Assertions.assertFalse(stats.getStartTime().isBefore(beforeReset));
+    }
+
+    @Test
+    void getForbidden() throws Exception {
+        perform(MockMvcRequestBuilders.get(REST_URL)
+                .with(userHttpBasic(user)))
+                .andExpect(status().isForbidden());
+    }
+}
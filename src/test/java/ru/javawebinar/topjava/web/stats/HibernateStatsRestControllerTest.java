@@ -0,0 +1,61 @@
+package ru.javawebinar.topjava.web.stats;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.javawebinar.topjava.to.HibernateStatsTo;
+import ru.javawebinar.topjava.web.AbstractControllerTest;
+import ru.javawebinar.topjava.web.json.JsonUtil;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.javawebinar.topjava.TestUtil.userHttpBasic;
+import static ru.javawebinar.topjava.UserTestData.admin;
+import static ru.javawebinar.topjava.UserTestData.user;
+
+class HibernateStatsRestControllerTest extends AbstractControllerTest {
+
+    private static final String REST_URL = HibernateStatsRestController.REST_URL;
+
+    @Test
+    void enableAndReset() throws Exception {
+        perform(MockMvcRequestBuilders.patch(REST_URL)
+                .param("enabled", "true")
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isNoContent());
+        Instant beforeReset = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        perform(MockMvcRequestBuilders.delete(REST_URL)
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isNoContent());
+
+        HibernateStatsTo stats = JsonUtil.readValue(perform(MockMvcRequestBuilders.get(REST_URL)
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andDo(print())
+                .andReturn().getResponse().getContentAsString(), HibernateStatsTo.class);
+        Assertions.assertTrue(stats.isEnabled());
+        Assertions.assertFalse(stats.getStartTime().isBefore(beforeReset));
+
+        perform(MockMvcRequestBuilders.patch(REST_URL)
+                .param("enabled", "false")
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void getForbidden() throws Exception {
+        perform(MockMvcRequestBuilders.get(REST_URL)
+                .with(userHttpBasic(user)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void resetForbidden() throws Exception {
+        perform(MockMvcRequestBuilders.delete(REST_URL)
+                .with(userHttpBasic(user)))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -5,17 +5,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.javawebinar.topjava.model.Meal;
 import ru.javawebinar.topjava.model.User;
 import ru.javawebinar.topjava.service.UserService;
 import ru.javawebinar.topjava.util.exception.NotFoundException;
 import ru.javawebinar.topjava.web.AbstractControllerTest;
 import ru.javawebinar.topjava.web.json.JsonUtil;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.javawebinar.topjava.MealTestData.adminMeal1;
+import static ru.javawebinar.topjava.MealTestData.adminMeal2;
 import static ru.javawebinar.topjava.TestUtil.userHttpBasic;
 import static ru.javawebinar.topjava.UserTestData.*;
 
@@ -116,6 +122,35 @@ class AdminRestControllerTest extends AbstractControllerTest {
                 .andExpect(USER_WITH_MEALS_MATCHER.contentJson(admin));
     }
 
+    @Test
+    void getWithMealsPage() throws Exception {
+        User expected = new User(admin);
+        expected.setMeals(List.of(copyOf(adminMeal2)));
+        String next = perform(MockMvcRequestBuilders.get(REST_URL + ADMIN_ID + "/with-meals")
+                .param("limit", "1")
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(header().exists(AbstractUserController.NEXT_CURSOR_HEADER))
+                .andExpect(USER_WITH_MEALS_MATCHER.contentJson(expected))
+                .andReturn().getResponse().getHeader(AbstractUserController.NEXT_CURSOR_HEADER);
+
+        expected = new User(admin);
+        expected.setMeals(List.of(copyOf(adminMeal1)));
+        perform(MockMvcRequestBuilders.get(REST_URL + ADMIN_ID + "/with-meals")
+                .param("limit", "1")
+                .param("cursor", next)
+                .with(userHttpBasic(admin)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(AbstractUserController.NEXT_CURSOR_HEADER))
+                .andExpect(USER_WITH_MEALS_MATCHER.contentJson(expected));
+    }
+
+    // enhanced setMeals moves meals between users and detaches replaced ones: shared test data stays with admin
+    private static Meal copyOf(Meal meal) {
+        return new Meal(meal.getId(), meal.getDateTime(), meal.getDescription(), meal.getCalories());
+    }
+
     @Test
     void enable() throws Exception {
         perform(MockMvcRequestBuilders.patch(REST_URL + USER_ID)